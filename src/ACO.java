@@ -1,85 +1,79 @@
-import java.io.PrintStream;
 import java.util.Arrays;
-import java.util.Random;
 
-public class ACO {
+public class ACO extends AbstractOptimizer {
     private static final int ANT_COUNT = 20;
     private static final int GENERATIONS = 100;
-    private static final int DIMENSIONS = 5;
     private static final double ALPHA = 0.4;
     private static final double EVAPORATION = 0.9;
     private static final double Q = 50.0;
     private static final int GRANULARITY = 41;
 
-    private DataItem[] testData;
-    private DataManager baseDM;
-    private Random random;
     private double[][] pheromones;
+    private double[][] ants;
+    private boolean initialized = false;
+    private int gen = 0;
 
-    public ACO(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
+    public ACO(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
         this.pheromones = new double[DIMENSIONS][GRANULARITY];
         for (int i = 0; i < DIMENSIONS; i++) {
             Arrays.fill(pheromones[i], 1.0);
         }
     }
 
-    private double evaluate(double[] weights) {
-        return DataTest.score(weights, testData, baseDM);
-    }
+    @Override
+    public String name() { return "ACO"; }
 
-    public double run(PrintStream out, double baselineScore) {
-        double bestScore = -Double.MAX_VALUE;
-        double[] bestSolution = new double[DIMENSIONS];
-        out.println("ACO Initializing (Granularity: " + GRANULARITY + ")...");
+    @Override
+    public Request ask() {
+        if (!initialized) {
+            log("ACO Initializing (Granularity: " + GRANULARITY + ")...");
+            // 初始化最佳分数
+            ants = new double[][]{randomWeights()};
+            return Request.single(ants[0]);
+        }
+        if (gen == GENERATIONS) return null;
 
-        // 初始化最佳分数
-        double initialScore = evaluate(randomWeights());
-        bestScore = initialScore;
-        baseDM.saveBestStats();
+        // 信息素在本代内不变，先让所有蚂蚁构造解，再整代并行评估
+        ants = new double[ANT_COUNT][DIMENSIONS];
+        for (int k = 0; k < ANT_COUNT; k++) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                ants[k][d] = selectValue(d);
+            }
+        }
+        return Request.batch(ants, null);
+    }
 
-        for (int gen = 0; gen < GENERATIONS; gen++) {
-            double[][] ants = new double[ANT_COUNT][DIMENSIONS];
-            double[] scores = new double[ANT_COUNT];
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        if (!initialized) {
+            initialized = true;
+            offer(ants[0], results[0]);
+            return;
+        }
 
-            for (int k = 0; k < ANT_COUNT; k++) {
-                for (int d = 0; d < DIMENSIONS; d++) {
-                    ants[k][d] = selectValue(d);
-                }
-                scores[k] = evaluate(ants[k]);
-                if (scores[k] > bestScore) {
-                    bestScore = scores[k];
-                    bestSolution = ants[k].clone();
-                    baseDM.saveBestStats();
-                }
-            }
+        double[] scores = new double[ANT_COUNT];
+        for (int k = 0; k < ANT_COUNT; k++) {
+            scores[k] = results[k].score;
+            offer(ants[k], results[k]);
+        }
 
-            for (int i = 0; i < DIMENSIONS; i++) {
-                for (int j = 0; j < GRANULARITY; j++) {
-                    pheromones[i][j] *= EVAPORATION;
-                }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            for (int j = 0; j < GRANULARITY; j++) {
+                pheromones[i][j] *= EVAPORATION;
             }
+        }
 
-            for (int k = 0; k < ANT_COUNT; k++) {
-                for (int d = 0; d < DIMENSIONS; d++) {
-                    int idx = (int) Math.round(ants[k][d] * (GRANULARITY - 1));
-                    pheromones[d][idx] += Q * (scores[k] / Math.max(bestScore, 1e-6));
-                }
+        double bestScore = getBestScore();
+        for (int k = 0; k < ANT_COUNT; k++) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                int idx = (int) Math.round(ants[k][d] * (GRANULARITY - 1));
+                pheromones[d][idx] += Q * (scores[k] / Math.max(bestScore, 1e-6));
             }
-            double improvement = bestScore - baselineScore;
-            out.printf("Gen %2d: Improvement = %.4f\n", gen + 1, Math.max(0, improvement));
         }
-
-        out.println("\n=== ACO Finished ===");
-        double[] finalNormalizedBest = bestSolution.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        baseDM.printStats(out);
-        return bestScore;
+        gen++;
+        progress(String.format("Gen %2d", gen));
     }
 
-    private double[] randomWeights() { double[] w = new double[DIMENSIONS]; for (int i = 0; i < DIMENSIONS; i++) w[i] = random.nextDouble(); return w; }
     private double selectValue(int dimension) { double[] probs = new double[GRANULARITY]; double sum = 0; for (int i = 0; i < GRANULARITY; i++) { probs[i] = Math.pow(pheromones[dimension][i], ALPHA); sum += probs[i]; } if (sum == 0 || Double.isNaN(sum)) { return (double) random.nextInt(GRANULARITY) / (GRANULARITY - 1); } double r = random.nextDouble() * sum; for (int i = 0; i < GRANULARITY; i++) { r -= probs[i]; if (r <= 0) { return (double) i / (GRANULARITY - 1); } } return 1.0; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 各优化算法共用的部分：随机数、最佳解及其统计快照、进度打印和结束时的报告。
+ * 子类只实现 ask/tell 中的算法逻辑，在 tell 中用 offer 登记完整评估的结果，每完成一代调用 progress。
+ */
+public abstract class AbstractOptimizer implements Optimizer {
+    protected static final int DIMENSIONS = 5;
+
+    protected final Trace testData;
+    protected final DataManager baseDM;
+    protected final Random random;
+
+    private double[] bestSolution = new double[DIMENSIONS];
+    private double bestScore = -Double.MAX_VALUE;
+    private DataManager.StatsSnapshot bestStats;
+    private PrintStream out;
+    private double baselineScore;
+
+    protected AbstractOptimizer(Trace testData, DataManager baseDM, long seed) {
+        this.testData = testData;
+        this.baseDM = baseDM;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public Trace getTrace() { return testData; }
+
+    @Override
+    public DataManager getDataManager() { return baseDM; }
+
+    @Override
+    public void begin(PrintStream out, double baselineScore) {
+        this.out = out;
+        this.baselineScore = baselineScore;
+    }
+
+    /**
+     * 登记一个候选解的评估结果：完整评估且超过当前最佳时记为最佳解，返回 true。
+     */
+    protected boolean offer(double[] solution, ParallelEvaluator.Result result) {
+        if (!result.isExact() || result.score <= bestScore) return false;
+        bestScore = result.score;
+        bestSolution = solution.clone();
+        bestStats = result.stats;
+        return true;
+    }
+
+    @Override
+    public double getBestScore() { return bestScore; }
+
+    /** 当前最佳解（不复制，调用方不得修改）。 */
+    protected double[] bestSolution() { return bestSolution; }
+
+    /** 打印一行进度，例如 "Gen  3: Improvement = 12.3456"。 */
+    protected void progress(String label) {
+        out.printf("%s: Improvement = %.4f\n", label, Math.max(0, bestScore - baselineScore));
+    }
+
+    protected void log(String line) { out.println(line); }
+
+    @Override
+    public double finish(String budgetSummary) {
+        out.println("\n" + finishedBanner());
+        if (budgetSummary != null) out.println(budgetSummary);
+        double[] finalNormalizedBest = bestSolution.clone();
+        baseDM.normalizeL2(finalNormalizedBest);
+        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
+        printSummary(out);
+        if (bestStats != null) baseDM.saveBestStats(bestStats);
+        baseDM.printStats(out);
+        return bestScore;
+    }
+
+    protected String finishedBanner() { return "=== " + name() + " Finished ==="; }
+
+    /** 在最佳权重之后、统计量之前打印的附加信息。 */
+    protected void printSummary(PrintStream out) {}
+
+    /**
+     * 在调用线程上单独运行本算法，评估预算由 -Dsched.* 系统属性决定，默认不限 (见 OptimizerScheduler)。
+     */
+    public double run(PrintStream out, double baselineScore) {
+        return OptimizerScheduler.run(this, out, baselineScore, OptimizerScheduler.Budget.fromSystemProperties());
+    }
+
+    protected double[] randomWeights() {
+        double[] w = new double[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            w[i] = random.nextDouble();
+        }
+        return w;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * TinyLFU 式的准入过滤器，可以装在任意有界的 Cathe 层前面：本层每次被查找 (命中或未命中) 都记入 FrequencySketch，
+ * 放入新对象需要淘汰时，在淘汰任何对象之前只判定一次：候选对象的频次估计高于淘汰策略选出的第一个淘汰者才被接纳，
+ * 之后照常淘汰到放得下为止；否则拒绝候选对象，本层 (包括淘汰策略的状态) 保持不变。
+ * 被拒绝的对象不会缓存在本层，但仍在下一层 (远端命中时 DataManager 已先放入边缘云，远端云包含全部对象)。
+ *
+ * 内存固定：草图宽度只由本层容量决定 (约 capacity / 4 KB 个计数器，至少 64)，与轨迹长度和对象数无关；
+ * 每记录 10 × 宽度次访问计数器减半，使频次反映近期热度。每次评估开始时 (Cathe.clear) 清空。
+ *
+ * Main 通过 -Dcache.local.admission=true / -Dcache.cloud.admission=true 为本地缓存 / 边缘云开启，默认关闭。
+ */
+final class AdmissionFilter {
+    static final boolean LOCAL = Boolean.getBoolean("cache.local.admission");
+    static final boolean CLOUD = Boolean.getBoolean("cache.cloud.admission");
+
+    private final FrequencySketch sketch;
+    private long admitted = 0, rejected = 0;
+
+    AdmissionFilter(long capacity) {
+        this.sketch = FrequencySketch.forCapacity(capacity);
+    }
+
+    /** 记录一次对本层的查找。 */
+    void record(int object) { sketch.increment(object); }
+
+    /** 候选对象是否比淘汰者更热门。 */
+    boolean admit(int candidate, int victim) { return sketch.frequency(candidate) > sketch.frequency(victim); }
+
+    void admitted() { admitted++; }
+    void rejected() { rejected++; }
+    long getAdmitted() { return admitted; }
+    long getRejected() { return rejected; }
+
+    void clear() {
+        sketch.clear();
+        admitted = 0;
+        rejected = 0;
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Iterator;
+
+/**
+ * 流式评估 (StreamingSimulation) 的请求来源：按到达时间非递减的顺序逐条拉取，不要求整条轨迹驻留内存。
+ * next() 返回 true 之后，id()/size()/arrivalTime()/deadline() 给出当前这条请求，直到下一次调用 next()。
+ */
+public interface ArrivalStream {
+    boolean next();
+    int id();
+    int size();
+    long arrivalTime();
+    long deadline();
+
+    /**
+     * 已在内存中的轨迹，按 EvaluationContext 的稳定到达顺序输出，与批量评估的入队顺序一致。
+     */
+    static ArrivalStream of(Trace trace) {
+        int[] order = trace.evaluationContext().arrivalOrder;
+        return new ArrivalStream() {
+            private int next = 0;
+            private int row = -1;
+
+            public boolean next() {
+                if (next == order.length) return false;
+                row = order[next++];
+                return true;
+            }
+            public int id() { return trace.ids[row]; }
+            public int size() { return trace.sizes[row]; }
+            public long arrivalTime() { return trace.arrivalTimes[row]; }
+            public long deadline() { return trace.deadlines[row]; }
+        };
+    }
+
+    /**
+     * 任意 DataItem 迭代器，例如边生成边消费的合成数据。迭代器本身必须按到达时间输出。
+     */
+    static ArrivalStream of(Iterator<DataItem> items) {
+        return new ArrivalStream() {
+            private DataItem current;
+
+            public boolean next() {
+                current = items.hasNext() ? items.next() : null;
+                return current != null;
+            }
+            public int id() { return current.id; }
+            public int size() { return current.size; }
+            public long arrivalTime() { return current.arrivalTime; }
+            public long deadline() { return current.deadline; }
+        };
+    }
+}
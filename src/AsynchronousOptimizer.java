@@ -0,0 +1,15 @@
+/**
+ * 自己管理评估线程的优化器（例如 IslandGA 的各个岛异步演化）：OptimizerScheduler 调用 drive，不再逐批 ask/tell。
+ * 同时也可以按 ask/tell 同步运行时，isAsynchronous 返回 false，调度器照常使用 Optimizer 的接口。
+ */
+public interface AsynchronousOptimizer extends Optimizer {
+
+    /** 本次运行是否异步 (由 drive 驱动)。 */
+    default boolean isAsynchronous() { return true; }
+
+    /**
+     * 异步运行入口：在 begin 之后调用，运行到结束或预算用尽 (预算对整个优化器计算)。
+     * @return 评估预算统计，交给 finish 打印。
+     */
+    String drive(OptimizerScheduler.Budget budget, long deadline);
+}
@@ -0,0 +1,246 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * CMA-ES (协方差矩阵自适应进化策略)：从多元正态分布 N(m, σ²C) 采样一代候选解，整代并行评估，
+ * 按排名更新均值 m、步长 σ (累积步长控制) 和协方差 C (rank-one + rank-μ 更新)。
+ * 与 SA/GA 固定的变异步长不同，步长和搜索方向随进展自动放大或收缩，收敛后不再浪费仿真在不变的邻域上。
+ *
+ * 边界处理 ([0,1]^5)：采样点先截断到边界内再评估（评估的是截断后的权重），
+ * 排名时减去与截断距离平方成正比的罚分，使均值不会漂出可行域，同时能停在边界面上（很多好解的某些权重为 0）。
+ * 步长收缩到 TOL_X 以下而预算还有剩余时，从新的随机均值重启，种群加倍 (IPOP)。
+ *
+ * 系统属性：-Dcmaes.lambda=8 (初始种群大小), -Dcmaes.sigma=0.3 (初始步长), -Dcmaes.evaluations=2000 (总评估次数，与 GA/PSO 相同),
+ * -Dcmaes.target=得分 (可选，报告首次达到该得分时的评估次数)
+ */
+public class CMAES extends AbstractOptimizer {
+    private static final int INITIAL_LAMBDA = Math.max(4, Integer.getInteger("cmaes.lambda", 4 + (int) (3 * Math.log(DIMENSIONS))));
+    private static final double INITIAL_SIGMA = Double.parseDouble(System.getProperty("cmaes.sigma", "0.3"));
+    private static final int MAX_EVALUATIONS = Math.max(INITIAL_LAMBDA, Integer.getInteger("cmaes.evaluations", 2000));
+    private static final double TARGET = Double.parseDouble(System.getProperty("cmaes.target", "NaN"));
+    private static final double TOL_X = 1e-4;
+
+    // --- 策略参数，随 lambda 在每次 (重新) 开始时计算 ---
+    private int lambda, mu;
+    private double[] weights;
+    private double muEff, cc, cs, c1, cMu, damps, chiN;
+    // --- 分布状态 ---
+    private double[] mean;
+    private double sigma;
+    private double[][] C, B;    // 协方差矩阵和它的特征向量 (按列)
+    private double[] D;         // 特征值的平方根
+    private double[] pc, ps;
+    // --- 本代的采样 ---
+    private double[][] raw;         // 未截断的采样点
+    private double[][] candidates;  // 截断到 [0,1] 后实际评估的权重
+
+    private int gen = 0, generationInRun = 0, restarts = 0;
+    private long evaluations = 0, evaluationsToTarget = -1;
+
+    public CMAES(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
+        start(INITIAL_LAMBDA);
+    }
+
+    @Override
+    public String name() { return "CMA-ES"; }
+
+    @Override
+    public Request ask() {
+        if (evaluations >= MAX_EVALUATIONS) return null;
+        if (converged()) {
+            restarts++;
+            start(lambda * 2);
+        }
+        int size = (int) Math.min(lambda, MAX_EVALUATIONS - evaluations);
+        if (size < lambda && size < 2) return null;
+        raw = new double[size][];
+        candidates = new double[size][];
+        for (int k = 0; k < size; k++) {
+            double[] z = new double[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) z[i] = D[i] * random.nextGaussian();
+            double[] x = new double[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                double s = 0;
+                for (int j = 0; j < DIMENSIONS; j++) s += B[i][j] * z[j];
+                x[i] = mean[i] + sigma * s;
+            }
+            raw[k] = x;
+            candidates[k] = new double[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) candidates[k][i] = Math.max(0, Math.min(1, x[i]));
+        }
+        return Request.batch(candidates, null);
+    }
+
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        int size = results.length;
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int k = 0; k < size; k++) {
+            evaluations++;
+            if (offer(candidates[k], results[k]) && evaluationsToTarget < 0 && getBestScore() >= TARGET) {
+                evaluationsToTarget = evaluations;
+            }
+            min = Math.min(min, results[k].score);
+            max = Math.max(max, results[k].score);
+        }
+        // 罚分系数：在某一维越界一个 σ，罚掉本代得分极差的 1/n
+        double penalty = (max - min) / (DIMENSIONS * sigma * sigma);
+        double[] fitness = new double[size];
+        for (int k = 0; k < size; k++) {
+            double distance = 0;
+            for (int i = 0; i < DIMENSIONS; i++) distance += (raw[k][i] - candidates[k][i]) * (raw[k][i] - candidates[k][i]);
+            fitness[k] = results[k].score - penalty * distance;
+        }
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) order[k] = k;
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        update(order, Math.min(mu, size));
+        gen++;
+        progress(String.format("Gen %2d", gen));
+    }
+
+    /** 按排名前 selected 个采样点更新均值、进化路径、协方差和步长。 */
+    private void update(Integer[] order, int selected) {
+        double[] w = weights;
+        if (selected < mu) { // 最后一代被预算截短时重新归一化权重
+            w = Arrays.copyOf(weights, selected);
+            double sum = 0;
+            for (double v : w) sum += v;
+            for (int i = 0; i < selected; i++) w[i] /= sum;
+        }
+        double[] oldMean = mean.clone();
+        mean = new double[DIMENSIONS];
+        for (int r = 0; r < selected; r++) {
+            for (int i = 0; i < DIMENSIONS; i++) mean[i] += w[r] * raw[order[r]][i];
+        }
+        double[] step = new double[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) step[i] = (mean[i] - oldMean[i]) / sigma;
+
+        // ps 用 C^-1/2 · step = B D^-1 B^T · step
+        double[] bt = new double[DIMENSIONS];
+        for (int j = 0; j < DIMENSIONS; j++) {
+            double s = 0;
+            for (int i = 0; i < DIMENSIONS; i++) s += B[i][j] * step[i];
+            bt[j] = s / D[j];
+        }
+        double psNorm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            double s = 0;
+            for (int j = 0; j < DIMENSIONS; j++) s += B[i][j] * bt[j];
+            ps[i] = (1 - cs) * ps[i] + Math.sqrt(cs * (2 - cs) * muEff) * s;
+            psNorm += ps[i] * ps[i];
+        }
+        psNorm = Math.sqrt(psNorm);
+        generationInRun++;
+        boolean hsig = psNorm / Math.sqrt(1 - Math.pow(1 - cs, 2.0 * generationInRun)) / chiN < 1.4 + 2.0 / (DIMENSIONS + 1);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            pc[i] = (1 - cc) * pc[i] + (hsig ? Math.sqrt(cc * (2 - cc) * muEff) * step[i] : 0);
+        }
+
+        for (int i = 0; i < DIMENSIONS; i++) {
+            for (int j = 0; j <= i; j++) {
+                double rankMu = 0;
+                for (int r = 0; r < selected; r++) {
+                    double[] x = raw[order[r]];
+                    rankMu += w[r] * (x[i] - oldMean[i]) * (x[j] - oldMean[j]);
+                }
+                rankMu /= sigma * sigma;
+                double value = (1 - c1 - cMu) * C[i][j]
+                        + c1 * (pc[i] * pc[j] + (hsig ? 0 : cc * (2 - cc) * C[i][j]))
+                        + cMu * rankMu;
+                C[i][j] = C[j][i] = value;
+            }
+        }
+        sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1));
+        decompose();
+    }
+
+    /** 步长在所有主轴上都小于 TOL_X，或协方差矩阵病态时视为收敛。 */
+    private boolean converged() {
+        double maxD = 0, minD = Double.MAX_VALUE;
+        for (double d : D) { maxD = Math.max(maxD, d); minD = Math.min(minD, d); }
+        return sigma * maxD < TOL_X || maxD > 1e7 * minD;
+    }
+
+    /** 以 newLambda 为种群大小、新的随机均值 (重新) 开始。 */
+    private void start(int newLambda) {
+        int n = DIMENSIONS;
+        lambda = newLambda;
+        mu = lambda / 2;
+        weights = new double[mu];
+        double sum = 0, sumSq = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+            sum += weights[i];
+        }
+        for (int i = 0; i < mu; i++) { weights[i] /= sum; sumSq += weights[i] * weights[i]; }
+        muEff = 1 / sumSq;
+        cc = (4 + muEff / n) / (n + 4 + 2 * muEff / n);
+        cs = (muEff + 2) / (n + muEff + 5);
+        c1 = 2 / ((n + 1.3) * (n + 1.3) + muEff);
+        cMu = Math.min(1 - c1, 2 * (muEff - 2 + 1 / muEff) / ((n + 2) * (n + 2) + muEff));
+        damps = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (n + 1)) - 1) + cs;
+        chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21 * n * n));
+
+        mean = randomWeights();
+        sigma = INITIAL_SIGMA;
+        C = new double[n][n];
+        B = new double[n][n];
+        D = new double[n];
+        for (int i = 0; i < n; i++) { C[i][i] = 1; B[i][i] = 1; D[i] = 1; }
+        pc = new double[n];
+        ps = new double[n];
+        generationInRun = 0;
+    }
+
+    /** Jacobi 旋转求 C 的特征分解：C = B diag(D²) B^T。 */
+    private void decompose() {
+        int n = DIMENSIONS;
+        double[][] a = new double[n][];
+        for (int i = 0; i < n; i++) a[i] = C[i].clone();
+        double[][] v = new double[n][n];
+        for (int i = 0; i < n; i++) v[i][i] = 1;
+        for (int sweep = 0; sweep < 50; sweep++) {
+            double off = 0;
+            for (int p = 0; p < n; p++) for (int q = p + 1; q < n; q++) off += a[p][q] * a[p][q];
+            if (off < 1e-30) break;
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    if (Math.abs(a[p][q]) < 1e-300) continue;
+                    double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) t = 1;
+                    double c = 1 / Math.sqrt(t * t + 1), s = t * c;
+                    for (int k = 0; k < n; k++) {
+                        double akp = a[k][p], akq = a[k][q];
+                        a[k][p] = c * akp - s * akq;
+                        a[k][q] = s * akp + c * akq;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double apk = a[p][k], aqk = a[q][k];
+                        a[p][k] = c * apk - s * aqk;
+                        a[q][k] = s * apk + c * aqk;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double vkp = v[k][p], vkq = v[k][q];
+                        v[k][p] = c * vkp - s * vkq;
+                        v[k][q] = s * vkp + c * vkq;
+                    }
+                }
+            }
+        }
+        B = v;
+        for (int i = 0; i < n; i++) D[i] = Math.sqrt(Math.max(a[i][i], 1e-20));
+    }
+
+    @Override
+    protected void printSummary(PrintStream out) {
+        out.printf("CMA-ES: 初始种群 %d, 最终种群 %d, 重启 %d 次, 共 %d 次评估, 最终步长 %.2e\n", INITIAL_LAMBDA, lambda, restarts, evaluations, sigma);
+        if (!Double.isNaN(TARGET)) {
+            out.println(evaluationsToTarget > 0
+                    ? String.format("达到目标得分 %.4f 用了 %d 次评估", TARGET, evaluationsToTarget)
+                    : String.format("未达到目标得分 %.4f", TARGET));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * 优化器评估候选解的统一入口。批量接口供 PSO/GA/ACO 这类一次提交一整代的算法使用，
+ * 单个接口供 SA/UpdateSA 这类逐个比较邻居与当前解的算法使用。
+ * 两种实现：ParallelEvaluator 总是在完整轨迹上评估；MultiFidelityEvaluator 先在轨迹前缀上筛选，只把有希望的候选解晋级到完整轨迹。
+ * 返回的 Result 只有 isExact() 为 true 时才是完整评估的得分，可以记为最佳解；其余的得分只用于比较和选择。
+ */
+public interface CandidateEvaluator {
+
+    /**
+     * 评估一整代候选解，返回与 candidates 一一对应的结果。
+     * @param thresholds 每个候选解对调用方有意义的最低得分 (提前终止的阈值)，为 null 时不设阈值。
+     */
+    ParallelEvaluator.Result[] evaluateAll(double[][] candidates, double[] thresholds);
+
+    default ParallelEvaluator.Result[] evaluateAll(double[][] candidates) { return evaluateAll(candidates, null); }
+
+    /**
+     * 评估单个候选解。只有得分不低于 threshold 时结果才对调用方有意义（例如 SA 的接受判定），
+     * reference/referenceScore 是调用方已知得分的参照解（通常是当前解），多保真评估用它把前缀得分换算到完整轨迹上。
+     * reference 为 null 或 threshold 为负无穷时总是完整评估。
+     */
+    ParallelEvaluator.Result evaluate(double[] candidate, double[] reference, double referenceScore, double threshold);
+
+    default ParallelEvaluator.Result evaluate(double[] candidate) { return evaluate(candidate, null, 0, Double.NEGATIVE_INFINITY); }
+
+    /**
+     * 评估预算统计：提交的候选解数量和实际仿真的任务数（折合成完整轨迹评估的次数）。
+     */
+    String budgetSummary();
+
+    /**
+     * 按系统属性 -Deval.mf 选择实现：开启时为 MultiFidelityEvaluator，否则为 ParallelEvaluator。
+     */
+    static CandidateEvaluator create(Trace trace, DataManager baseDM) {
+        return MultiFidelityEvaluator.ENABLED ? new MultiFidelityEvaluator(trace, baseDM) : new ParallelEvaluator(trace, baseDM);
+    }
+}
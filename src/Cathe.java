@@ -1,94 +1,210 @@
-import java.util.*;
+import java.util.Arrays;
 
 class Cathe {
     long capacity;
     long currentSize = 0;
-    Map<String, List<DataItem>> dataMap = new HashMap<>();
     protected Cathe lowerLevel = null;
-
-    public Cathe(long capacity) { this.capacity = capacity; }
-    public void bindLowerLevel(Cathe lower) { this.lowerLevel = lower; }
+    protected Cathe upperLevel = null;
+
+    // --- 存储：按对象编号直接寻址，驻留标记 + 对象大小（ObjectState 的对象表）都是数组访问，查找和增删都是 O(1) ---
+    private ObjectState state;
+    private boolean[] resident = new boolean[0];
+    private int residentCount = 0;
+
+    // --- 有界层的驻留对象列表 (与 residentSlot 互为索引)，清空时只需逐个清除标记 ---
+    private int[] residents = new int[16];
+    private int[] residentSlot = new int[0];
+
+    // --- 淘汰策略 (EvictionPolicy)，决定 evictOne 淘汰谁；容量无上限的 RemoteCloud 没有淘汰策略 ---
+    private final EvictionPolicy eviction;
+    // --- 可选的准入过滤器 (AdmissionFilter)，为 null 时每个放入的对象都会被接纳 ---
+    private AdmissionFilter admission;
+    // --- 本层使用的权重，由 DataManager 在每次评估开始时设置 ---
+    private ScoringPolicy policy = ScoringPolicy.DEFAULT;
+
+    public Cathe(long capacity) { this(capacity, capacity == Long.MAX_VALUE ? null : new EvictionPolicy.Score()); }
+    public Cathe(long capacity, EvictionPolicy eviction) { this.capacity = capacity; this.eviction = eviction; }
+    public void bindLowerLevel(Cathe lower) { this.lowerLevel = lower; lower.upperLevel = this; }
     public long getCurrentSize() { return currentSize; }
+    public ScoringPolicy getPolicy() { return policy; }
+    public String getEvictionPolicyName() { return eviction == null ? "none" : eviction.name(); }
+
+    /**
+     * 开启或关闭本层的准入过滤器 (只对有界层有效)。新的过滤器从零频次开始。
+     */
+    public void setAdmissionFilter(boolean enabled) {
+        admission = enabled && tracksEviction() ? new AdmissionFilter(capacity) : null;
+    }
 
-    public DataItem get(String type, int id, long currentTime) {
-        List<DataItem> list = dataMap.get(type);
-        if (list == null) return null;
+    public boolean hasAdmissionFilter() { return admission != null; }
+    AdmissionFilter getAdmissionFilter() { return admission; }
+
+    /**
+     * 绑定所属仿真的对象状态（对象表 + 访问状态）。会清空本层。
+     */
+    public void bind(ObjectState state) {
+        clear();
+        this.state = state;
+        ensureObjects(state.objectCount);
+        if (tracksEviction()) eviction.bind(state, capacity);
+    }
 
-        // --- 使用新的辅助构造函数进行查找 ---
-        int idx = Collections.binarySearch(list, new DataItem(id), (a, b) -> a.id - b.id);
-        if (idx >= 0) {
-            DataItem item = list.get(idx);
-            item.updateAccess(currentTime); // 触发 frequency 增加
-            return item;
+    /**
+     * 流式评估中对象表增长后调用，保证驻留标记数组能容纳 n 个对象。
+     */
+    public void ensureObjects(int n) {
+        if (resident.length < n) resident = Arrays.copyOf(resident, Math.max(n, resident.length * 2));
+        if (tracksEviction()) {
+            if (residentSlot.length < n) residentSlot = Arrays.copyOf(residentSlot, resident.length);
+            eviction.ensureObjects(n);
         }
-        return null;
     }
 
-    public void put(DataItem item, long currentTime) {
-        if (item.size > this.capacity) {
-            degrade(item, currentTime);
-            return;
+    /**
+     * 切换权重。score 策略的淘汰键依赖权重，由它重新计算本层缓存项的键。
+     */
+    public void setPolicy(ScoringPolicy policy) {
+        this.policy = policy;
+        if (tracksEviction()) eviction.setScoring(policy);
+    }
+
+    /**
+     * 一次性装入对象表中的全部对象，不改变对象访问状态。用于容量无上限的 RemoteCloud：
+     * 它的内容只取决于轨迹本身，绑定后装满一次即可，评估之间不需要清空和重新填充。
+     */
+    public void preloadAll() {
+        clear();
+        for (int object = 0; object < state.objectCount; object++) {
+            resident[object] = true;
+            currentSize += state.objectSizes[object];
         }
+        residentCount = state.objectCount;
+    }
 
-        List<DataItem> list = dataMap.computeIfAbsent(item.type, k -> new ArrayList<>());
+    public boolean contains(int object) { return resident[object]; }
+
+    /**
+     * 查找对象，命中时更新其访问信息。
+     * @return 是否命中。
+     */
+    public boolean get(int object, long currentTime) {
+        if (admission != null) admission.record(object);
+        if (!resident[object]) return false;
+        touch(object, currentTime); // 触发 frequency 增加
+        return true;
+    }
 
-        int existingIdx = Collections.binarySearch(list, item, (a, b) -> a.id - b.id);
-        if (existingIdx >= 0) {
-            list.get(existingIdx).updateAccess(currentTime); // 触发 frequency 增加
+    public void put(int object, long currentTime) {
+        int size = state.objectSizes[object];
+        if (size > this.capacity) {
+            degrade(object, currentTime);
             return;
         }
 
-        while (currentSize + item.size > capacity) {
-            if (!evictOne(currentTime)) {
-                return;
-            }
+        if (resident[object]) {
+            touch(object, currentTime); // 触发 frequency 增加
+            return;
         }
 
-        list = dataMap.computeIfAbsent(item.type, k -> new ArrayList<>());
-        int insertionIdx = Collections.binarySearch(list, item, (a, b) -> a.id - b.id);
+        if (currentSize + size > capacity) {
+            int victim = eviction.victim(object, currentTime);
+            if (victim < 0) return;
+            // 准入只在淘汰之前判定一次 (TinyLFU)：候选对象必须比第一个淘汰者更热门，被拒绝时本层保持不变
+            if (admission != null) {
+                if (!admission.admit(object, victim)) {
+                    admission.rejected();
+                    eviction.rejected(object);
+                    return;
+                }
+                admission.admitted();
+            }
+            evict(victim, currentTime);
+            while (currentSize + size > capacity) {
+                victim = eviction.victim(object, currentTime);
+                if (victim < 0) return;
+                evict(victim, currentTime);
+            }
+        }
 
-        if(insertionIdx >= 0) {
-            list.get(insertionIdx).updateAccess(currentTime);
+        if (resident[object]) {
+            touch(object, currentTime);
             return;
         }
 
-        insertionIdx = -insertionIdx - 1;
+        resident[object] = true;
+        residentCount++;
+        currentSize += size;
+        if (tracksEviction()) {
+            residentSlot[object] = residentCount - 1;
+            if (residentCount > residents.length) residents = Arrays.copyOf(residents, residents.length * 2);
+            residents[residentCount - 1] = object;
+            eviction.inserted(object, currentTime);
+        }
+    }
 
-        list.add(insertionIdx, item);
-        currentSize += item.size;
+    /**
+     * 显式移除一个缓存项，不下放到下一层。互斥层级结构中对象被提升到上一层时调用；容量无上限的层不移除。
+     */
+    public void remove(int object) {
+        if (!tracksEviction() || !resident[object]) return;
+        eviction.removed(object, false);
+        unmark(object);
     }
 
-    protected boolean evictOne(long currentTime) {
-        DataItem toEvict = null;
-        double minScore = Double.MAX_VALUE;
-        String typeOfToEvict = null;
-
-        for (Map.Entry<String, List<DataItem>> entry : dataMap.entrySet()) {
-            for (DataItem item : entry.getValue()) {
-                double score = item.getCacheScore(currentTime);
-                if (score < minScore) {
-                    minScore = score;
-                    toEvict = item;
-                    typeOfToEvict = entry.getKey();
-                }
-            }
-        }
+    /**
+     * 淘汰淘汰策略选出的缓存项，并把它下放到下一层。
+     */
+    protected void evict(int victim, long currentTime) {
+        eviction.removed(victim, true);
+        unmark(victim);
+        degrade(victim, currentTime);
+    }
+
+    private void unmark(int object) {
+        resident[object] = false;
+        int slot = residentSlot[object], last = residents[--residentCount];
+        residents[slot] = last;
+        residentSlot[last] = slot;
+        currentSize -= state.objectSizes[object];
+    }
 
-        if (toEvict != null) {
-            List<DataItem> list = dataMap.get(typeOfToEvict);
-            if (list != null && list.remove(toEvict)) {
-                currentSize -= toEvict.size;
-                degrade(toEvict, currentTime);
-                return true;
+    /**
+     * 更新访问信息。本层的淘汰策略记录这次命中；访问状态按对象记录在 ObjectState 中，同一个对象可能同时驻留在多个层级，
+     * 因此还要通知整条层级链上持有它的每一层 (score 策略据此刷新它在淘汰堆中的位置)。
+     */
+    private void touch(int object, long currentTime) {
+        state.updateAccess(object, currentTime);
+        if (tracksEviction()) eviction.touched(object, currentTime);
+        Cathe top = this;
+        while (top.upperLevel != null) top = top.upperLevel;
+        for (Cathe level = top; level != null; level = level.lowerLevel) {
+            if (level.tracksEviction() && level.resident[object]) {
+                level.eviction.stateChanged(object);
             }
         }
-        return false;
     }
 
-    protected void degrade(DataItem item, long currentTime) { if (lowerLevel != null) { lowerLevel.put(item, currentTime); } }
-    public void clear() { dataMap.clear(); currentSize = 0; }
+    // 容量无上限的层级（RemoteCloud）永远不会淘汰，不必维护淘汰堆
+    private boolean tracksEviction() { return eviction != null; }
+
+    protected void degrade(int object, long currentTime) { if (lowerLevel != null) { lowerLevel.put(object, currentTime); } }
+
+    /**
+     * 原地清空本层。有界层按驻留对象列表逐个清除标记，代价与驻留数量成正比。
+     */
+    public void clear() {
+        if (tracksEviction()) {
+            for (int i = 0; i < residentCount; i++) resident[residents[i]] = false;
+            eviction.clear();
+            if (admission != null) admission.clear();
+        } else if (residentCount > 0) {
+            Arrays.fill(resident, false);
+        }
+        residentCount = 0;
+        currentSize = 0;
+    }
 }
 
-class LocalCache extends Cathe { public LocalCache(long c) { super(c); } }
-class CloudCache extends Cathe { public CloudCache(long c) { super(c); } }
-class RemoteCloud extends Cathe { public RemoteCloud() { super(Long.MAX_VALUE); } }
\ No newline at end of file
+class LocalCache extends Cathe { public LocalCache(long c) { super(c); } public LocalCache(long c, EvictionPolicy p) { super(c, p); } }
+class CloudCache extends Cathe { public CloudCache(long c) { super(c); } public CloudCache(long c, EvictionPolicy p) { super(c, p); } }
+class RemoteCloud extends Cathe { public RemoteCloud() { super(Long.MAX_VALUE); } }
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Cathe 存储结构的基准测试：对比旧版 "按 id 排序的 ArrayList + binarySearch" 与现在按 Trace 对象编号直接寻址的存储。
+ * （id -> 对象编号 的压缩由 Trace 在构造时借助 IdSlotMap 一次性完成，这部分也计入新实现的装入时间。）
+ * 测试内容：
+ * 1.  向 RemoteCloud 装入 n 个乱序到达的唯一 id（旧实现每次插入都要移动数组，整体 O(n²)）。
+ * 2.  对已装入的数据做随机命中查找（旧实现每次查找都要 new 一个探测用 DataItem）。
+ * 3.  在有界缓存上反复 put/淘汰（旧实现 list.remove 需要 O(n) 移动）。
+ * 用法: java CatheBenchmark [唯一id数量]
+ */
+public class CatheBenchmark {
+
+    /**
+     * 旧版存储结构的忠实复刻，仅用于对比，不参与仿真。
+     */
+    private static class SortedListStore {
+        private final Map<String, List<DataItem>> dataMap = new HashMap<>();
+
+        DataItem get(String type, int id) {
+            List<DataItem> list = dataMap.get(type);
+            if (list == null) return null;
+            DataItem probe = new DataItem(id, 0, type, 0, 0);
+            int idx = Collections.binarySearch(list, probe, (a, b) -> a.id - b.id);
+            return idx >= 0 ? list.get(idx) : null;
+        }
+
+        void put(DataItem item) {
+            List<DataItem> list = dataMap.computeIfAbsent(item.type, k -> new ArrayList<>());
+            int idx = Collections.binarySearch(list, item, (a, b) -> a.id - b.id);
+            if (idx >= 0) return;
+            list.add(-idx - 1, item);
+        }
+
+        boolean remove(DataItem item) {
+            List<DataItem> list = dataMap.get(item.type);
+            return list != null && list.remove(item);
+        }
+    }
+
+    private static final String TYPE = "bench_request";
+    private static final int LOOKUPS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int uniqueIds = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random random = new Random(42);
+
+        DataItem[] items = new DataItem[uniqueIds];
+        for (int i = 0; i < uniqueIds; i++) {
+            items[i] = new DataItem(i, 200 + random.nextInt(20000), TYPE, i, i + 4000);
+        }
+        // 打乱到达顺序，模拟真实日志中 id 的随机出现
+        for (int i = uniqueIds - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            DataItem tmp = items[i]; items[i] = items[j]; items[j] = tmp;
+        }
+        int[] lookupIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupIds[i] = random.nextInt(uniqueIds);
+        }
+
+        System.out.printf("唯一 id 数: %d, 随机查找次数: %d, 轮数: %d\n", uniqueIds, LOOKUPS, ROUNDS);
+        for (int round = 1; round <= ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            SortedListStore legacy = new SortedListStore();
+            for (DataItem item : items) legacy.put(item);
+            long t1 = System.nanoTime();
+            long legacyHits = 0;
+            for (int id : lookupIds) if (legacy.get(TYPE, id) != null) legacyHits++;
+            long t2 = System.nanoTime();
+            for (int i = 0; i < uniqueIds; i += 2) legacy.remove(items[i]);
+            long t3 = System.nanoTime();
+
+            Trace trace = Trace.of(items);
+            ObjectState state = new ObjectState();
+            state.reset(trace);
+            Cathe remote = new Cathe(Long.MAX_VALUE);
+            remote.bind(state);
+            for (int row = 0; row < trace.length(); row++) remote.put(trace.objectOf[row], trace.arrivalTimes[row]);
+            long t4 = System.nanoTime();
+            int[] objectOfId = new int[uniqueIds];
+            for (int object = 0; object < trace.objectCount; object++) objectOfId[trace.objectIds[object]] = object;
+            long indexedHits = 0;
+            for (int id : lookupIds) if (remote.get(objectOfId[id], 0)) indexedHits++;
+            long t5 = System.nanoTime();
+            Cathe bounded = new Cathe(uniqueIds * 5000L);
+            bounded.bind(state);
+            for (int row = 0; row < trace.length(); row++) bounded.put(trace.objectOf[row], trace.arrivalTimes[row]);
+            long t6 = System.nanoTime();
+
+            if (legacyHits != indexedHits) {
+                throw new IllegalStateException("两种实现的命中数不一致: " + legacyHits + " vs " + indexedHits);
+            }
+            System.out.printf("第 %d 轮 | 旧实现: 装入 %8.1f ms, 查找 %8.1f ms, 删除一半 %8.1f ms | 新实现: 装入 %8.1f ms, 查找 %8.1f ms, 有界缓存装入(含淘汰) %8.1f ms\n",
+                    round, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                    (t4 - t3) / 1e6, (t5 - t4) / 1e6, (t6 - t5) / 1e6);
+        }
+    }
+}
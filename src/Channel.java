@@ -1,33 +1,114 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * 带随机信噪比波动的信道模型：每次传输的容量 C = B * log2(1 + S/N)，S/N 服从截断在 1 以上的正态分布。
+ *
+ * 随机数使用可拆分的 SplittableRandom，由 DataManager 在每次评估开始时通过 reseed 注入，
+ * 因此同一个评估种子总是得到完全相同的延迟序列，而且不同线程的信道之间没有任何共享的原子变量。
+ * 容量按块预先采样到 double 数组中（presample 可一次采样整次评估所需的数量），
+ * 每次访问只是一次数组读取；第 k 次访问总是使用第 k 个样本，与预采样的块大小无关。
+ *
+ * 批量评估使用 getTotalDelayAt，按轨迹位置（行号）取样本而不是按访问顺序：
+ * 同一个种子下，不同权重的候选解在同一个任务上遇到的信道噪声完全相同（公共随机数），比较它们时噪声相互抵消。
+ */
 public class Channel {
+    private static final double LN2 = Math.log(2);
+    private static final int SAMPLE_BLOCK = 4096;
+
     private final double bandwidth;        // 带宽 (B) in Hz
     private final double baseLatency;      // 基础延迟 (如传播延迟) in seconds
     private final double meanSnr;          // 信噪比(S/N)的均值 (ratio, not dB)
     private final double stdDevSnr;        // 信噪比(S/N)的标准差，控制波动
-    private final Random random;
+    private SplittableRandom random;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian = false;
+
+    // --- 预采样的信道容量 (bps)，按访问顺序依次取用 ---
+    private double[] capacities = new double[0];
+    private int nextSample = 0;
+    private int sampleCount = 0;
+    private double maxSampledCapacity = 0.0;
 
     public Channel(double bandwidth, double baseLatency, double meanSnr, double stdDevSnr) {
+        this(bandwidth, baseLatency, meanSnr, stdDevSnr, new SplittableRandom());
+    }
+
+    public Channel(double bandwidth, double baseLatency, double meanSnr, double stdDevSnr, SplittableRandom random) {
         this.bandwidth = bandwidth;
         this.baseLatency = baseLatency;
         this.meanSnr = meanSnr;
         this.stdDevSnr = stdDevSnr;
-        this.random = new Random();
+        this.random = random;
+    }
+
+    /**
+     * 换用新的随机数流（通常由评估种子拆分而来），丢弃尚未使用的预采样容量。
+     */
+    public void reseed(SplittableRandom random) {
+        this.random = random;
+        this.haveNextNextGaussian = false;
+        this.nextSample = 0;
+        this.sampleCount = 0;
+    }
+
+    /**
+     * 从当前随机数流中一次采样 n 个容量，供接下来的 n 次访问使用；用完后自动按块继续采样。
+     */
+    public void presample(int n) {
+        if (capacities.length < n) capacities = new double[n];
+        double max = 0.0;
+        for (int i = 0; i < n; i++) {
+            // C = B * log2(1 + S/N)
+            capacities[i] = bandwidth * (Math.log(1 + getCurrentSnr()) / LN2);
+            max = Math.max(max, capacities[i]);
+        }
+        maxSampledCapacity = max;
+        nextSample = 0;
+        sampleCount = n;
     }
 
     private double getCurrentSnr() {
-        double currentSnr = meanSnr + random.nextGaussian() * stdDevSnr;
+        double currentSnr = meanSnr + nextGaussian() * stdDevSnr;
         return Math.max(1.0, currentSnr);
     }
 
+    // 与 java.util.Random.nextGaussian 相同的极坐标法，但基于不需要 CAS 的 SplittableRandom
+    private double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    /** 最近一次 presample 得到的最大容量；按位置取样 (getTotalDelayAt) 的传输时间不会低于以它计算的值。 */
+    public double getMaxSampledCapacity() { return maxSampledCapacity; }
+
+    /** 每次传输至少需要的基础延迟 (秒)。 */
+    public double getBaseLatency() { return baseLatency; }
+
     public double getCapacity() {
-        double snr = getCurrentSnr();
-        // C = B * log2(1 + S/N)
-        return bandwidth * (Math.log(1 + snr) / Math.log(2));
+        if (nextSample == sampleCount) presample(Math.max(SAMPLE_BLOCK, capacities.length));
+        return capacities[nextSample++];
     }
 
-    public double getTotalDelay(int dataSizeInBytes) {
-        double capacityBps = getCapacity();
+    public double getTotalDelay(int dataSizeInBytes) { return delayFor(dataSizeInBytes, getCapacity()); }
+
+    /**
+     * 使用第 position 个预采样容量计算延迟，不消耗随机数。调用前需要 presample 至少 position + 1 个样本。
+     */
+    public double getTotalDelayAt(int dataSizeInBytes, int position) { return delayFor(dataSizeInBytes, capacities[position]); }
+
+    private double delayFor(int dataSizeInBytes, double capacityBps) {
         if (capacityBps <= 0) {
             return Double.POSITIVE_INFINITY;
         }
@@ -37,4 +118,4 @@ public class Channel {
 
         return baseLatency + transmissionTime;
     }
-}
\ No newline at end of file
+}
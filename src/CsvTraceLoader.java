@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把 "id","size","arrivalTime","deadline" 格式的 CSV 轨迹内存映射后直接从字节解析为列数组。
+ * 不经过 BufferedReader / String.split / replace，也不为每一行创建 String 或 DataItem。
+ * 每个文件在整个 JVM 中只解析一次，之后所有实验共享同一个 Trace；
+ * 10k/15k/20k 等数据集通过 Trace.prefix(n) 取零拷贝前缀视图。
+ */
+public final class CsvTraceLoader {
+    // 单个映射窗口的大小；超过 2GB 的文件按窗口依次映射，跨窗口的行从行首重新映射
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final Map<String, Trace> loaded = new HashMap<>();
+
+    private CsvTraceLoader() {}
+
+    /**
+     * 加载（或直接返回已加载的）整条轨迹。第一行视为表头跳过，空行忽略。
+     * 解析失败时抛出异常且不缓存，下次调用会重新尝试。
+     */
+    public static synchronized Trace load(String filePath, String type) throws IOException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        String key = file + "|" + type;
+        Trace trace = loaded.get(key);
+        if (trace == null) {
+            trace = parse(file, type);
+            loaded.put(key, trace);
+        }
+        return trace;
+    }
+
+    private static Trace parse(Path file, String type) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Columns columns = new Columns((int) Math.min(fileSize / 16 + 16, 1 << 20));
+            long position = 0;
+            boolean header = true;
+            while (position < fileSize) {
+                int limit = (int) Math.min(WINDOW_BYTES, fileSize - position);
+                boolean lastWindow = position + limit == fileSize;
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, limit);
+                int lineStart = 0;
+                while (lineStart < limit) {
+                    int lineEnd = indexOfNewline(buf, lineStart, limit);
+                    if (lineEnd < 0) {
+                        if (!lastWindow) break; // 行被窗口截断，从行首开始映射下一个窗口
+                        lineEnd = limit;
+                    }
+                    if (header) {
+                        header = false;
+                    } else {
+                        columns.parseLine(buf, lineStart, lineEnd);
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart == 0) throw new IOException("CSV 行长度超过映射窗口: " + file);
+                position += Math.min(lineStart, limit);
+            }
+            return columns.toTrace(type);
+        }
+    }
+
+    private static int indexOfNewline(MappedByteBuffer buf, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buf.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 解析中的列数组，按需倍增扩容，结束时截断为实际行数。
+     */
+    private static final class Columns {
+        int[] ids;
+        int[] sizes;
+        long[] arrivalTimes;
+        long[] deadlines;
+        int count = 0;
+        int[] fieldStarts = new int[4];
+        int[] fieldEnds = new int[4];
+
+        Columns(int capacity) {
+            ids = new int[capacity];
+            sizes = new int[capacity];
+            arrivalTimes = new long[capacity];
+            deadlines = new long[capacity];
+        }
+
+        void parseLine(MappedByteBuffer buf, int start, int end) {
+            if (end > start && buf.get(end - 1) == '\r') end--;
+            if (end == start) return;
+
+            int fields = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end && fields < 4; i++) {
+                if (i == end || buf.get(i) == ',') {
+                    fieldStarts[fields] = fieldStart;
+                    fieldEnds[fields++] = i;
+                    fieldStart = i + 1;
+                }
+            }
+            if (fields < 4) throw new NumberFormatException("第 " + (count + 1) + " 条数据的字段不足 4 个");
+
+            if (count == ids.length) {
+                int capacity = Math.max(16, count * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+            }
+            ids[count] = parseInt(buf, fieldStarts[0], fieldEnds[0]);
+            sizes[count] = parseInt(buf, fieldStarts[1], fieldEnds[1]);
+            arrivalTimes[count] = parseTime(buf, fieldStarts[2], fieldEnds[2]);
+            deadlines[count] = parseTime(buf, fieldStarts[3], fieldEnds[3]);
+            count++;
+        }
+
+        Trace toTrace(String type) {
+            return new Trace(type, Arrays.copyOf(ids, count), Arrays.copyOf(sizes, count),
+                    Arrays.copyOf(arrivalTimes, count), Arrays.copyOf(deadlines, count));
+        }
+    }
+
+    // 与 Integer.parseInt(field.replace("\"", "")) 等价
+    private static int parseInt(MappedByteBuffer buf, int start, int end) {
+        long value = parseDigits(buf, start, end, true);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("整数越界: " + text(buf, start, end));
+        }
+        return (int) value;
+    }
+
+    // 与 (long) Double.parseDouble(field.replace("\"", "")) 等价：小数部分直接截断，科学计数法等少见写法退回 Double.parseDouble
+    private static long parseTime(MappedByteBuffer buf, int start, int end) {
+        return parseDigits(buf, start, end, false);
+    }
+
+    private static long parseDigits(MappedByteBuffer buf, int start, int end, boolean integral) {
+        while (start < end && (buf.get(start) == '"' || buf.get(start) == ' ')) start++;
+        while (end > start && (buf.get(end - 1) == '"' || buf.get(end - 1) == ' ')) end--;
+        int i = start;
+        boolean negative = i < end && buf.get(i) == '-';
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) i++;
+        if (i == end) throw new NumberFormatException("空字段: \"" + text(buf, start, end) + "\"");
+
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (value > (Long.MAX_VALUE - (b - '0')) / 10) break; // 溢出，交给慢速路径
+                value = value * 10 + (b - '0');
+            } else if (b == '.' && !integral && onlyDigits(buf, i + 1, end)) {
+                i = end;
+                break;
+            } else {
+                break;
+            }
+        }
+        if (i < end) {
+            if (integral) throw new NumberFormatException("非法整数: " + text(buf, start, end));
+            return (long) Double.parseDouble(text(buf, start, end));
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean onlyDigits(MappedByteBuffer buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') return false;
+        }
+        return true;
+    }
+
+    private static String text(MappedByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) bytes[i - start] = buf.get(i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,9 +1,6 @@
 import java.io.PrintStream;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class DataManager {
     // --- 所有成员变量，包括 best_ 系列，保持不变 ---
@@ -14,30 +11,308 @@ public class DataManager {
     public int totalAccessed = 0, localHits = 0, cloudHits = 0;
     public int localAccesses = 0, cloudAccesses = 0, remoteAccesses = 0;
     public int completedTasks = 0, totalTasks = 0;
-    private final Map<Integer, DataItem> idToDataItemMap = new HashMap<>();
+    public int coalescedCloud = 0, coalescedRemote = 0; public long coalescedBytes = 0; public double coalescedSavedSeconds = 0.0;
     private double best_totalDelaySeconds = 0.0;
     private int best_totalAccessed = 0, best_localHits = 0, best_cloudHits = 0;
     private int best_localAccesses = 0, best_cloudAccesses = 0, best_remoteAccesses = 0;
     private int best_completedTasks = 0, best_totalTasks = 0;
+    private int best_coalescedCloud = 0, best_coalescedRemote = 0; private long best_coalescedBytes = 0; private double best_coalescedSavedSeconds = 0.0;
+    // --- 当前评估使用的权重，同时下发给三层缓存 ---
+    private ScoringPolicy policy = ScoringPolicy.DEFAULT;
+    // --- 当前绑定的只读轨迹/评估上下文，以及本仿真私有的对象访问状态与就绪队列 (评估之间原地复用) ---
+    private Trace trace;
+    private EvaluationContext context;
+    private final ObjectState objectState = new ObjectState();
+    private ReadyQueue readyQueue;
+    // --- 评估种子序列：每次评估取一个种子，拆分给两条信道，保证延迟可复现 ---
+    private SplittableRandom evaluationSeeds = new SplittableRandom(0);
+    // --- 公共随机数模式：所有评估使用同一个种子，信道噪声按任务行号取样，候选解之间只差权重本身 ---
+    private boolean commonRandomNumbers = Boolean.getBoolean("eval.crn");
+    private long commonSeed = commonSeedOf(0);
+    private long experimentSeed = 0;
+    // --- 重复评估次数 (>1 时每次评估取多个种子的平均得分，并给出置信区间) ---
+    private int replications = Math.max(1, Integer.getInteger("eval.replications", 1));
+    // --- 已预采样的信道容量表对应的种子与长度；按行号取样不消耗随机数，同一个种子的表可以直接复用 ---
+    private long sampledSeed; private int sampledLength = -1;
+    // --- 当前任务的轨迹位置（批量评估为行号，流式评估为 -1，按访问顺序取样）---
+    private int noisePosition = -1;
+    // --- 重复评估的汇总：次数与得分的 95% 置信区间半宽 ---
+    public int scoreReplications = 1; public double scoreHalfWidth = 0.0;
+    private int best_scoreReplications = 1; private double best_scoreHalfWidth = 0.0;
+    // --- 提前终止 (racing)：是否允许 DataTest.race 在得分上界低于阈值时中止仿真，以及本次评估是否被中止 ---
+    private boolean racing = Boolean.getBoolean("eval.racing");
+    private boolean aborted = false;
+    // --- 层级结构：inclusive (默认) 时远端命中同时填入边缘云和本地；exclusive 时一个对象最多驻留在本地和边缘云之一 ---
+    static final String INCLUSIVE = "inclusive", EXCLUSIVE = "exclusive";
+    static final String HIERARCHY = System.getProperty("cache.hierarchy", INCLUSIVE);
+    private boolean exclusive = EXCLUSIVE.equals(HIERARCHY);
+    // --- 未命中合并 (MSHR)：每个对象最近一次边缘云/远端传输的起止时间 (ms) 与来源层；coalescedUntil 为本次请求被合并时的完成时间，否则为 -1 ---
+    private static final byte FROM_CLOUD = 1, FROM_REMOTE = 2;
+    private boolean coalescing = Boolean.getBoolean("cache.coalescing");
+    private long[] inFlightStart = new long[0], inFlightEnd = new long[0]; private byte[] inFlightTier = new byte[0];
+    private long coalescedUntil = -1;
+    // --- 本 DataManager 累计实际仿真的任务数（缓存命中不计，提前终止只计已处理的部分），用于评估预算统计 ---
+    private long simulatedTasks = 0;
+    // --- 提前终止的得分上界所需的每对象状态：剩余请求数、命中/未命中时的延迟下界、每个请求最多贡献的分子 ---
+    private int[] raceRemaining = new int[0]; private double[] raceHitDelay = new double[0], raceMissDelay = new double[0], raceCredit = new double[0];
+    // --- getSystemScore 中本地命中率、边缘云命中率、完成率的权重 ---
+    private static final double SCORE_W1 = 10.0, SCORE_W2 = 1.0, SCORE_W3 = 10.0;
 
-    public DataManager(long localCap, long edgeCap) {
-        local = new LocalCache(localCap); cloud = new CloudCache(edgeCap); remote = new RemoteCloud();
+    public DataManager(long localCap, long edgeCap) { this(localCap, edgeCap, EvictionPolicy.SCORE, EvictionPolicy.SCORE); }
+
+    /**
+     * @param localPolicy 本地缓存的淘汰策略名称 (见 EvictionPolicy.of)
+     * @param cloudPolicy 边缘云的淘汰策略名称
+     */
+    public DataManager(long localCap, long edgeCap, String localPolicy, String cloudPolicy) {
+        local = new LocalCache(localCap, EvictionPolicy.of(localPolicy)); cloud = new CloudCache(edgeCap, EvictionPolicy.of(cloudPolicy)); remote = new RemoteCloud();
         local.bindLowerLevel(cloud); cloud.bindLowerLevel(remote);
         this.cloudChannel = new Channel(8 * 1e4, 0.15, 15.0, 5.0);
         this.remoteChannel = new Channel(4 * 1e4, 0.30, 10.0, 6.0);
     }
 
+    /**
+     * 创建一个容量和淘汰策略相同、但缓存/统计/信道完全独立的 DataManager，供并行评估的工作线程使用。
+     * 不从本对象的种子序列中取值，评估种子由 ParallelEvaluator 逐个传入。
+     */
+    public DataManager newWorker() {
+        DataManager dm = new DataManager(local.capacity, cloud.capacity, local.getEvictionPolicyName(), cloud.getEvictionPolicyName());
+        dm.setAdmissionFilters(local.hasAdmissionFilter(), cloud.hasAdmissionFilter());
+        dm.exclusive = exclusive; dm.coalescing = coalescing;
+        return dm;
+    }
+
+    /**
+     * 为本地缓存 / 边缘云开启或关闭准入过滤器 (见 AdmissionFilter)。默认都关闭。
+     */
+    public void setAdmissionFilters(boolean localEnabled, boolean cloudEnabled) {
+        local.setAdmissionFilter(localEnabled); cloud.setAdmissionFilter(cloudEnabled);
+    }
+
+    /**
+     * 采用 base 的评估设置（公共随机数、重复次数、提前终止）和实验种子，使两者的 ScoreCache 键相同。
+     * 实验种子变化时重新设定本对象的种子序列。
+     */
+    public void adoptSettings(DataManager base) {
+        if (experimentSeed != base.experimentSeed) setSeed(base.experimentSeed);
+        commonRandomNumbers = base.commonRandomNumbers; replications = base.replications; racing = base.racing;
+    }
+
+    /**
+     * 创建一个容量和评估设置都与本对象相同的独立 DataManager，种子序列从实验种子重新开始。
+     * OptimizerScheduler 并发运行的每个优化器各用一个，评估种子和最佳解统计量互不干扰。
+     */
+    public DataManager fork() { DataManager dm = newWorker(); dm.adoptSettings(this); return dm; }
+
+    /**
+     * 重新设定评估种子序列。之后每次评估的信道噪声都由这个种子唯一确定。
+     */
+    public void setSeed(long seed) { this.experimentSeed = seed; this.evaluationSeeds = new SplittableRandom(seed); this.commonSeed = commonSeedOf(seed); }
+    public long getExperimentSeed() { return experimentSeed; }
+    /**
+     * 取出下一次评估的种子。并行评估时由优化器线程按候选解顺序预先取出，结果与线程调度无关。
+     * 公共随机数模式下总是返回同一个种子。
+     */
+    public long nextEvaluationSeed() { return commonRandomNumbers ? commonSeed : evaluationSeeds.nextLong(); }
+    private static long commonSeedOf(long seed) { return new SplittableRandom(~seed).nextLong(); }
+
+    /**
+     * 公共随机数 (common random numbers) 模式：开启后每个候选解都看到同一条按轨迹位置索引的信道噪声，
+     * 得分差异只来自权重，SA 等算法不会再因为噪声接受更差的解，saveBestStats 也不会锁定偶然的好运气。
+     * 默认值取自 -Deval.crn。
+     */
+    public void setCommonRandomNumbers(boolean enabled) { this.commonRandomNumbers = enabled; }
+    public boolean isCommonRandomNumbers() { return commonRandomNumbers; }
+    /**
+     * 每次评估的重复次数，大于 1 时 DataTest.score 返回多个种子的平均得分。默认值取自 -Deval.replications。
+     */
+    public void setReplications(int replications) { this.replications = Math.max(1, replications); }
+    public int getReplications() { return replications; }
+    /**
+     * 是否允许提前终止评估 (racing)。开启后优化器通过 DataTest.race 传入的阈值才会生效。默认值取自 -Deval.racing。
+     */
+    public void setRacing(boolean enabled) { this.racing = enabled; }
+    public boolean isRacing() { return racing; }
+    /**
+     * 互斥 (exclusive) 层级结构：本地填入 (边缘云命中或远端命中) 后从边缘云移除该对象，本地淘汰的对象照常下放到边缘云，
+     * 两层合起来的有效容量接近两者之和；本地拒收 (对象超过本地容量或被准入过滤器拒绝) 时对象留在 / 放入边缘云。
+     * 关闭时为包含式：远端命中同时填入两层。默认值取自 -Dcache.hierarchy (inclusive 或 exclusive)。
+     */
+    public void setExclusive(boolean enabled) { this.exclusive = enabled; }
+    public boolean isExclusive() { return exclusive; }
+    /**
+     * 未命中合并 (MSHR)：本地未命中的请求如果在同一对象的边缘云/远端传输完成之前到达，就等待这次传输，不再发起新的传输。
+     * 调度仍是单服务台串行处理，所以被合并的通常是传输期间在就绪队列中等待、且传输结束后仍不在本地的请求
+     * (对象放不进本地、被准入过滤器拒绝或随即被淘汰)。默认值取自 -Dcache.coalescing。
+     */
+    public void setCoalescing(boolean enabled) { this.coalescing = enabled; }
+    public boolean isCoalescing() { return coalescing; }
+    /** 最近一次评估是否因得分上界低于阈值而被中止；此时统计量只覆盖已处理的任务，不应记为最佳。 */
+    public boolean wasAborted() { return aborted; }
+    void abortEvaluation() { aborted = true; }
+    public long getSimulatedTasks() { return simulatedTasks; }
+    void recordSimulatedTasks(int tasks) { simulatedTasks += tasks; }
+
     // --- 核心业务逻辑 (保持不变) ---
-    public double access(String type, int id, long currentTime) { totalAccessed++; double delaySeconds; localAccesses++; DataItem item = local.get(type, id, currentTime); if (item != null) { localHits++; delaySeconds = (item.size * 8.0) / LOCAL_BUS_SPEED_BPS; return delaySeconds; } cloudAccesses++; item = cloud.get(type, id, currentTime); if (item != null) { cloudHits++; delaySeconds = cloudChannel.getTotalDelay(item.size); local.put(item, currentTime); return delaySeconds; } remoteAccesses++; item = remote.get(type, id, currentTime); if (item != null) { delaySeconds = remoteChannel.getTotalDelay(item.size); cloud.put(item, currentTime); local.put(item, currentTime); return delaySeconds; } item = idToDataItemMap.get(id); if (item != null) { delaySeconds = remoteChannel.getTotalDelay(item.size); cloud.put(item, currentTime); local.put(item, currentTime); return delaySeconds; } return Double.POSITIVE_INFINITY; }
-    public long processAndGetDuration(DataItem item, long currentTime, int readyQueueSize) { totalTasks++; double accessDelaySeconds = access(item.type, item.id, currentTime); this.totalDelaySeconds += accessDelaySeconds; long durationMillis = (long)(accessDelaySeconds * 1000); long taskCompletionTime = currentTime + durationMillis; if (taskCompletionTime <= item.deadline) { completedTasks++; } return durationMillis; }
-    public void registerDataItem(DataItem item) { idToDataItemMap.put(item.id, item); }
-    public void addDataToRemote(DataItem item, long currentTime) { remote.put(item, currentTime); }
+    public double access(int object, long currentTime) { return access(object, currentTime, currentTime); }
+    private double access(int object, long arrivalTime, long currentTime) { totalAccessed++; double delaySeconds; int size = objectState.objectSizes[object]; localAccesses++; if (local.get(object, currentTime)) { localHits++; delaySeconds = (size * 8.0) / LOCAL_BUS_SPEED_BPS; return delaySeconds; } if (coalescing && arrivalTime < inFlightEnd[object]) return coalesce(object, arrivalTime); cloudAccesses++; if (cloud.get(object, currentTime)) { cloudHits++; delaySeconds = channelDelay(cloudChannel, size); local.put(object, currentTime); if (exclusive && local.contains(object)) cloud.remove(object); if (coalescing) startFetch(object, currentTime, delaySeconds, FROM_CLOUD); return delaySeconds; } remoteAccesses++; if (remote.get(object, currentTime)) { delaySeconds = channelDelay(remoteChannel, size); if (!exclusive) cloud.put(object, currentTime); local.put(object, currentTime); if (exclusive && !local.contains(object)) cloud.put(object, currentTime); if (coalescing) startFetch(object, currentTime, delaySeconds, FROM_REMOTE); return delaySeconds; } return Double.POSITIVE_INFINITY; }
+
+    private void ensureInFlight(int n) {
+        if (inFlightEnd.length >= n) return;
+        int old = inFlightEnd.length, length = Math.max(n, old * 2);
+        inFlightStart = Arrays.copyOf(inFlightStart, length); inFlightTier = Arrays.copyOf(inFlightTier, length);
+        inFlightEnd = Arrays.copyOf(inFlightEnd, length); Arrays.fill(inFlightEnd, old, length, Long.MIN_VALUE);
+    }
+    private void startFetch(int object, long currentTime, double delaySeconds, byte tier) { inFlightStart[object] = currentTime; inFlightEnd[object] = currentTime + (long)(delaySeconds * 1000); inFlightTier[object] = tier; }
+
+    /**
+     * 本地未命中的请求在同一对象的传输完成之前到达：挂到这次传输上，不再占用信道和服务时间，传输结束时一起完成。
+     * 访问延迟为从到达 (或传输开始) 到传输结束的等待时间；来自边缘云的传输照常计为边缘云命中。
+     * 节省的延迟按 "重新发起一次同样的传输" 估计，即传输时长减去等待时间。
+     */
+    private double coalesce(int object, long arrivalTime) {
+        long start = inFlightStart[object], end = inFlightEnd[object];
+        double waitSeconds = (end - Math.max(arrivalTime, start)) / 1000.0;
+        if (inFlightTier[object] == FROM_CLOUD) { coalescedCloud++; cloudHits++; } else { coalescedRemote++; }
+        coalescedBytes += objectState.objectSizes[object];
+        coalescedSavedSeconds += (end - start) / 1000.0 - waitSeconds;
+        coalescedUntil = end;
+        return waitSeconds;
+    }
+    private double channelDelay(Channel channel, int size) { return noisePosition >= 0 ? channel.getTotalDelayAt(size, noisePosition) : channel.getTotalDelay(size); }
+    public long processAndGetDuration(int row, long currentTime, int readyQueueSize) { noisePosition = row; return processRequest(trace.objectOf[row], trace.arrivalTimes[row], trace.deadlines[row], currentTime); }
+    public long processTask(int object, long arrivalTime, long deadline, long currentTime) { noisePosition = -1; return processRequest(object, arrivalTime, deadline, currentTime); }
+    /** 处理一个任务，返回占用的服务时间 (ms)。被合并的请求在所挂传输结束时完成，不占用服务时间。 */
+    private long processRequest(int object, long arrivalTime, long deadline, long currentTime) { totalTasks++; coalescedUntil = -1; double accessDelaySeconds = access(object, arrivalTime, currentTime); this.totalDelaySeconds += accessDelaySeconds; if (coalescedUntil >= 0) { if (coalescedUntil <= deadline) completedTasks++; return 0; } long durationMillis = (long)(accessDelaySeconds * 1000); long taskCompletionTime = currentTime + durationMillis; if (taskCompletionTime <= deadline) { completedTasks++; } return durationMillis; }
+    public ScoringPolicy getPolicy() { return policy; }
+    public void setPolicy(ScoringPolicy policy) { this.policy = policy; local.setPolicy(policy); cloud.setPolicy(policy); remote.setPolicy(policy); }
+    public Trace getTrace() { return trace; }
+
+    /**
+     * 开始一次新的评估：清空统计和缓存，把对象访问状态恢复为 "数据集已装入远端云" 之后的初始值。
+     * 第一次遇到某个上下文时绑定各层并一次性装满远端云，之后的评估全部原地重置，没有任何重新填充或排序。
+     */
+    public void beginEvaluation(EvaluationContext context, ScoringPolicy policy) { beginEvaluation(context, policy, nextEvaluationSeed()); }
+
+    /**
+     * 使用指定的评估种子开始评估。两条信道各自从种子拆分出独立的随机数流，并为每个任务行预采样一个容量；
+     * 种子与上一次评估相同时（公共随机数、重复评估的同一轮）直接复用已采样的表。
+     */
+    public void beginEvaluation(EvaluationContext context, ScoringPolicy policy, long seed) {
+        if (this.context != context) {
+            this.context = context;
+            this.trace = context.trace;
+            objectState.reset(context);
+            local.bind(objectState); cloud.bind(objectState); remote.bind(objectState); ensureInFlight(objectState.objectCount);
+            remote.preloadAll();
+            readyQueue = new ReadyQueue(trace);
+        }
+        resetCurrentRunStats();
+        objectState.reset(context);
+        setPolicy(policy);
+        readyQueue.reset(policy, false);
+        if (seed != sampledSeed || trace.length() > sampledLength) {
+            seedChannels(seed);
+            // 每个任务至多访问一次信道，按行号取样
+            cloudChannel.presample(trace.length()); remoteChannel.presample(trace.length());
+            sampledSeed = seed; sampledLength = trace.length();
+        }
+    }
+
+    private void seedChannels(long seed) { SplittableRandom random = new SplittableRandom(seed); cloudChannel.reseed(random.split()); remoteChannel.reseed(random.split()); sampledLength = -1; }
+    public ReadyQueue getReadyQueue() { return readyQueue; }
+
+    /**
+     * 为提前终止准备得分上界（在 beginEvaluation 之后调用）。每个对象记录：
+     * 1.  剩余请求数 —— 初始为它在轨迹中的出现次数，每处理一个任务由 raceProcessed 减一；
+     * 2.  本地命中的延迟下界 (本地总线传输时间，放不进本地缓存时为无穷) 与未命中的延迟下界
+     *     (信道基础延迟 + 以本次评估预采样到的最大容量传输的时间，批量评估按行号取样，不会超过这个容量)；
+     *     开启未命中合并时未命中的延迟下界取 0；
+     * 3.  每个请求对得分分子的最大贡献：能本地命中为 w1 + w3，否则为 w2 + w3 (放不进边缘云时只有 w3)。
+     */
+    void beginRacing() {
+        int n = objectState.objectCount;
+        if (raceRemaining.length < n) { raceRemaining = new int[n]; raceHitDelay = new double[n]; raceMissDelay = new double[n]; raceCredit = new double[n]; }
+        double cloudCapacity = cloudChannel.getMaxSampledCapacity(), remoteCapacity = remoteChannel.getMaxSampledCapacity();
+        for (int object = 0; object < n; object++) {
+            int size = objectState.objectSizes[object];
+            double bits = size * 8.0;
+            raceRemaining[object] = context.initialFrequency[object] + 1;
+            double missDelay = remoteChannel.getBaseLatency() + bits / remoteCapacity;
+            if (size <= cloud.capacity) missDelay = Math.min(missDelay, cloudChannel.getBaseLatency() + bits / cloudCapacity);
+            raceMissDelay[object] = coalescing ? 0 : missDelay;
+            raceHitDelay[object] = size <= local.capacity ? bits / LOCAL_BUS_SPEED_BPS : Double.POSITIVE_INFINITY;
+            raceCredit[object] = size <= local.capacity ? SCORE_W1 + SCORE_W3 : size <= cloud.capacity ? SCORE_W2 + SCORE_W3 : SCORE_W3;
+        }
+    }
+    void raceProcessed(int row) { raceRemaining[trace.objectOf[row]]--; }
+
+    /**
+     * 批量评估进行到一半时，最终 getSystemScore 的乐观上界。
+     * 批量评估中每个任务恰好访问一次，最终得分等于 100 * (w1 * 本地命中数 + w2 * 边缘云命中数 + w3 * 完成数) / 总延迟。
+     * 对剩余任务，分子按每个请求的最大贡献累加，总延迟按每个请求的延迟下界累加；
+     * 此外，还有剩余请求却不在本地缓存中的对象，下一次请求必然未命中 (强制未命中)，分子和延迟都按未命中计。
+     * 得到的值不小于真实的最终得分。
+     */
+    double scoreUpperBound() {
+        double numerator = SCORE_W1 * localHits + SCORE_W2 * cloudHits + SCORE_W3 * completedTasks;
+        double delay = totalDelaySeconds;
+        for (int object = 0; object < objectState.objectCount; object++) {
+            int remaining = raceRemaining[object];
+            if (remaining == 0) continue;
+            double hitDelay = raceHitDelay[object], missDelay = raceMissDelay[object];
+            numerator += remaining * raceCredit[object];
+            if (hitDelay == Double.POSITIVE_INFINITY) {
+                delay += remaining * missDelay;
+            } else if (local.contains(object)) {
+                delay += remaining * Math.min(hitDelay, missDelay);
+            } else {
+                numerator -= SCORE_W1 - SCORE_W2;
+                delay += missDelay + (remaining - 1) * Math.min(hitDelay, missDelay);
+            }
+        }
+        if (delay <= 0) return Double.POSITIVE_INFINITY;
+        return 100 * numerator / delay * (1 + 1e-9); // 留出浮点舍入的余量
+    }
+
+    /**
+     * 开始一次流式评估 (StreamingSimulation)：没有预先装入的轨迹，对象表与远端云都从空开始，
+     * 每个请求到达时通过 admit 登记。之后再调用 beginEvaluation 会重新绑定批量轨迹。
+     */
+    public void beginStreaming(ScoringPolicy policy) {
+        this.context = null;
+        this.trace = null;
+        objectState.resetStreaming();
+        local.bind(objectState); cloud.bind(objectState); remote.bind(objectState); ensureInFlight(objectState.objectCount);
+        resetCurrentRunStats();
+        setPolicy(policy);
+        seedChannels(nextEvaluationSeed());
+    }
+
+    /**
+     * 流式评估中登记一个到达的请求，返回其对象编号。
+     * 与批量评估 "把数据集按顺序装入远端云" 相同，这里在请求到达时把它放入远端云：
+     * 新对象以频次 0 加入，已有对象频次加一并刷新最近访问时间 —— 只是频次只统计已经到达的请求，不再预知未来。
+     */
+    public int admit(int id, int size, long arrivalTime) {
+        int count = objectState.objectCount;
+        int object = objectState.intern(id, size, arrivalTime);
+        if (objectState.objectCount != count) { local.ensureObjects(objectState.objectCount); cloud.ensureObjects(objectState.objectCount); remote.ensureObjects(objectState.objectCount); ensureInFlight(objectState.objectCount); }
+        remote.put(object, arrivalTime);
+        return object;
+    }
+    public int getObjectCount() { return objectState.objectCount; }
     public void normalizeL2(double[] vector) { double sumOfSquares = 0.0; for (double value : vector) { sumOfSquares += value * value; } if (sumOfSquares == 0) return; double l2Norm = Math.sqrt(sumOfSquares); for (int i = 0; i < vector.length; i++) { vector[i] = vector[i] / l2Norm; } }
 
     /**
      * 【核心修复】getSystemScore 方法现在使用全局命中率
      */
-    public double getSystemScore() {
+    public double getSystemScore() { return systemScore(totalAccessed, localHits, cloudHits, completedTasks, totalTasks, totalDelaySeconds); }
+
+    /**
+     * getSystemScore 的计算公式，流式评估也用它计算每个时间窗口内的得分。
+     */
+    static double systemScore(int totalAccessed, int localHits, int cloudHits, int completedTasks, int totalTasks, double totalDelaySeconds) {
         if (totalAccessed == 0 || totalTasks == 0) return 0;
 
         // 【关键】所有命中率的分母都统一为 totalAccessed
@@ -46,15 +321,27 @@ public class DataManager {
 
         double completionRate = (double) completedTasks / totalTasks;
         double averageDelay = totalDelaySeconds / totalTasks;
-        double w1 = 10.0, w2 = 1.0, w3 = 10.0;
+        double w1 = SCORE_W1, w2 = SCORE_W2, w3 = SCORE_W3;
         if (averageDelay == 0) return Double.POSITIVE_INFINITY;
         return 100 * (w1 * localHitRate + w2 * cloudHitRate + w3 * completionRate) / (averageDelay);
     }
 
     // --- 状态管理方法 (保持上一版的正确逻辑) ---
-    public void resetCurrentRunStats() { totalAccessed = 0; localHits = 0; cloudHits = 0; localAccesses = 0; cloudAccesses = 0; remoteAccesses = 0; completedTasks = 0; totalTasks = 0; totalDelaySeconds = 0.0; local.clear(); cloud.clear(); }
-    public void reset() { resetCurrentRunStats(); best_totalDelaySeconds = 0.0; best_totalAccessed = 0; best_localHits = 0; best_cloudHits = 0; best_localAccesses = 0; best_cloudAccesses = 0; best_remoteAccesses = 0; best_completedTasks = 0; best_totalTasks = 0; }
-    public void saveBestStats() { this.best_totalDelaySeconds = this.totalDelaySeconds; this.best_totalAccessed = this.totalAccessed; this.best_localHits = this.localHits; this.best_cloudHits = this.cloudHits; this.best_localAccesses = this.localAccesses; this.best_cloudAccesses = this.cloudAccesses; this.best_remoteAccesses = this.remoteAccesses; this.best_completedTasks = this.completedTasks; this.best_totalTasks = this.totalTasks; }
+    public void resetCurrentRunStats() { aborted = false; scoreReplications = 1; scoreHalfWidth = 0.0; totalAccessed = 0; localHits = 0; cloudHits = 0; localAccesses = 0; cloudAccesses = 0; remoteAccesses = 0; completedTasks = 0; totalTasks = 0; totalDelaySeconds = 0.0; coalescedCloud = 0; coalescedRemote = 0; coalescedBytes = 0; coalescedSavedSeconds = 0.0; if (coalescing) Arrays.fill(inFlightEnd, Long.MIN_VALUE); local.clear(); cloud.clear(); }
+    public void reset() { resetCurrentRunStats(); best_totalDelaySeconds = 0.0; best_totalAccessed = 0; best_localHits = 0; best_cloudHits = 0; best_localAccesses = 0; best_cloudAccesses = 0; best_remoteAccesses = 0; best_completedTasks = 0; best_totalTasks = 0; best_coalescedCloud = 0; best_coalescedRemote = 0; best_coalescedBytes = 0; best_coalescedSavedSeconds = 0.0; best_scoreReplications = 1; best_scoreHalfWidth = 0.0; }
+    public StatsSnapshot snapshotStats() { return new StatsSnapshot(this); }
+    public void saveBestStats(StatsSnapshot s) { this.best_totalDelaySeconds = s.totalDelaySeconds; this.best_totalAccessed = s.totalAccessed; this.best_localHits = s.localHits; this.best_cloudHits = s.cloudHits; this.best_localAccesses = s.localAccesses; this.best_cloudAccesses = s.cloudAccesses; this.best_remoteAccesses = s.remoteAccesses; this.best_completedTasks = s.completedTasks; this.best_totalTasks = s.totalTasks; this.best_coalescedCloud = s.coalescedCloud; this.best_coalescedRemote = s.coalescedRemote; this.best_coalescedBytes = s.coalescedBytes; this.best_coalescedSavedSeconds = s.coalescedSavedSeconds; this.best_scoreReplications = s.scoreReplications; this.best_scoreHalfWidth = s.scoreHalfWidth; }
+    public void saveBestStats() { this.best_totalDelaySeconds = this.totalDelaySeconds; this.best_totalAccessed = this.totalAccessed; this.best_localHits = this.localHits; this.best_cloudHits = this.cloudHits; this.best_localAccesses = this.localAccesses; this.best_cloudAccesses = this.cloudAccesses; this.best_remoteAccesses = this.remoteAccesses; this.best_completedTasks = this.completedTasks; this.best_totalTasks = this.totalTasks; this.best_coalescedCloud = this.coalescedCloud; this.best_coalescedRemote = this.coalescedRemote; this.best_coalescedBytes = this.coalescedBytes; this.best_coalescedSavedSeconds = this.coalescedSavedSeconds; this.best_scoreReplications = this.scoreReplications; this.best_scoreHalfWidth = this.scoreHalfWidth; }
+
+    /**
+     * 把一次已有评估（例如 ScoreCache 命中）的统计量恢复为当前统计，之后的 saveBestStats 与真正评估后完全相同。
+     */
+    void loadStats(StatsSnapshot s) { aborted = false; totalDelaySeconds = s.totalDelaySeconds; totalAccessed = s.totalAccessed; localHits = s.localHits; cloudHits = s.cloudHits; localAccesses = s.localAccesses; cloudAccesses = s.cloudAccesses; remoteAccesses = s.remoteAccesses; completedTasks = s.completedTasks; totalTasks = s.totalTasks; coalescedCloud = s.coalescedCloud; coalescedRemote = s.coalescedRemote; coalescedBytes = s.coalescedBytes; coalescedSavedSeconds = s.coalescedSavedSeconds; scoreReplications = s.scoreReplications; scoreHalfWidth = s.scoreHalfWidth; }
+
+    /**
+     * 重复评估结束后调用：把各次的统计量相加作为本次评估的统计（比率和平均延迟因此是合并后的值），并记录置信区间。
+     */
+    void poolStats(StatsSnapshot[] runs, double halfWidth) { totalDelaySeconds = 0.0; totalAccessed = 0; localHits = 0; cloudHits = 0; localAccesses = 0; cloudAccesses = 0; remoteAccesses = 0; completedTasks = 0; totalTasks = 0; coalescedCloud = 0; coalescedRemote = 0; coalescedBytes = 0; coalescedSavedSeconds = 0.0; for (StatsSnapshot r : runs) { totalDelaySeconds += r.totalDelaySeconds; totalAccessed += r.totalAccessed; localHits += r.localHits; cloudHits += r.cloudHits; localAccesses += r.localAccesses; cloudAccesses += r.cloudAccesses; remoteAccesses += r.remoteAccesses; completedTasks += r.completedTasks; totalTasks += r.totalTasks; coalescedCloud += r.coalescedCloud; coalescedRemote += r.coalescedRemote; coalescedBytes += r.coalescedBytes; coalescedSavedSeconds += r.coalescedSavedSeconds; } scoreReplications = runs.length; scoreHalfWidth = halfWidth; }
 
     /**
      * printStats 方法现在与 getSystemScore 的计算逻辑完全一致
@@ -73,5 +360,33 @@ public class DataManager {
         out.printf("全局边缘云命中率: %.3f\n", globalCloudHitRate);
         out.printf("全局远端访问率: %.3f\n", globalRemoteHitRate);
         out.printf("平均任务延迟: %.3f ms\n", averageDelay * 1000);
+        if (best_coalescedCloud + best_coalescedRemote > 0) {
+            out.printf("未命中合并: 边缘云 %d 次, 远端 %d 次, 节省传输 %.1f KB, 节省延迟约 %.3f s\n", best_coalescedCloud, best_coalescedRemote,
+                    best_coalescedBytes / 1024.0, best_coalescedSavedSeconds);
+        }
+        if (best_scoreReplications > 1) out.printf("得分 95%% 置信区间半宽: ±%.4f (%d 次重复评估，以上统计为合并值)\n", best_scoreHalfWidth, best_scoreReplications);
+    }
+
+    /**
+     * 一次评估结束时统计量的不可变副本。并行评估时工作线程的 DataManager 会被下一个候选解复用，
+     * 因此需要在评估完成后立即拷贝，再由优化器线程按候选解顺序决定是否记为最佳。
+     */
+    public static final class StatsSnapshot {
+        final double totalDelaySeconds;
+        final int totalAccessed, localHits, cloudHits;
+        final int localAccesses, cloudAccesses, remoteAccesses;
+        final int completedTasks, totalTasks;
+        final int coalescedCloud, coalescedRemote; final long coalescedBytes; final double coalescedSavedSeconds;
+        final int scoreReplications;
+        final double scoreHalfWidth;
+
+        private StatsSnapshot(DataManager dm) {
+            this.totalDelaySeconds = dm.totalDelaySeconds;
+            this.totalAccessed = dm.totalAccessed; this.localHits = dm.localHits; this.cloudHits = dm.cloudHits;
+            this.localAccesses = dm.localAccesses; this.cloudAccesses = dm.cloudAccesses; this.remoteAccesses = dm.remoteAccesses;
+            this.completedTasks = dm.completedTasks; this.totalTasks = dm.totalTasks;
+            this.coalescedCloud = dm.coalescedCloud; this.coalescedRemote = dm.coalescedRemote; this.coalescedBytes = dm.coalescedBytes; this.coalescedSavedSeconds = dm.coalescedSavedSeconds;
+            this.scoreReplications = dm.scoreReplications; this.scoreHalfWidth = dm.scoreHalfWidth;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,56 +1,199 @@
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 public class DataTest {
+    // 提前终止时两次检查得分上界之间至少处理的任务数 (-Deval.race.interval)
+    private static final int RACE_INTERVAL = Math.max(1, Integer.getInteger("eval.race.interval", 128));
+    // 所有线程共享的提前终止统计：参与 racing 的评估数、被中止的评估数、实际仿真与省去的任务数
+    private static final LongAdder racedEvaluations = new LongAdder(), abortedEvaluations = new LongAdder();
+    private static final LongAdder simulatedTasks = new LongAdder(), skippedTasks = new LongAdder();
 
-    public static double score(double[] weights, DataItem[] dataSet, DataManager dm) {
-        // 这个方法现在不进行任何重置操作
-        dm.resetCurrentRunStats();
-        DataItem.setWeights(weights);
+    public static double score(double[] weights, Trace trace, DataManager dm) {
+        return score(ScoringPolicy.of(weights), trace, dm);
+    }
+
+    public static double race(double[] weights, Trace trace, DataManager dm, double threshold) {
+        return race(ScoringPolicy.of(weights), trace.evaluationContext(), dm, threshold);
+    }
+
+    /**
+     * 使用给定权重对数据集进行一次完整仿真。权重只通过 policy 传递，不修改任何静态状态，
+     * 轨迹只读共享，可变状态全部在 dm 内部，因此不同线程可以各自持有 DataManager 并发调用本方法。
+     * 轨迹的评估上下文在第一次调用时构建，此后一直复用。
+     */
+    public static double score(ScoringPolicy policy, Trace trace, DataManager dm) {
+        return score(policy, trace.evaluationContext(), dm);
+    }
+
+    /**
+     * 仿真主体。排序后的到达顺序、初始对象状态和远端云都来自预先构建的 context，
+     * 缓存层与就绪队列在 dm 中原地重置，因此每次调用只做纯粹的仿真。
+     * 公共随机数模式下，相同的权重向量（在同一数据集和配置下）由 ScoreCache 直接返回上一次的结果，dm 的统计量也随之恢复。
+     */
+    public static double score(ScoringPolicy policy, EvaluationContext context, DataManager dm) {
+        return race(policy, context, dm, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * 带阈值的评估 (racing)：优化器只关心得分能否超过 threshold（例如 PSO 中粒子的历史最好得分）。
+     * dm.isRacing() 开启时，仿真每隔若干任务用已处理部分的统计量计算最终得分的乐观上界，
+     * 上界低于 threshold 时立即停止，返回该上界（仍低于阈值）并置 dm.wasAborted()；被中止的结果不写入 ScoreCache。
+     * 上界不小于真实得分，所以被中止的候选解即使跑完也不会超过阈值。threshold 为负无穷时与 score 完全相同。
+     */
+    public static double race(ScoringPolicy policy, EvaluationContext context, DataManager dm, double threshold) {
+        ScoreCache cache = ScoreCache.shared();
+        ScoreCache.Key key = cache.isEnabled() ? cache.keyFor(policy, context, dm) : null;
+        if (key == null) return race(policy, context, dm, dm.nextEvaluationSeed(), threshold);
+
+        ScoreCache.Entry cached = cache.get(key);
+        if (cached != null) {
+            dm.loadStats(cached.stats);
+            return cached.score;
+        }
+        double score = race(policy, context, dm, dm.nextEvaluationSeed(), threshold);
+        if (!dm.wasAborted()) cache.put(key, score, dm.snapshotStats());
+        return score;
+    }
+
+    /**
+     * 使用指定评估种子的仿真：同一组 (权重, 种子) 总是得到完全相同的结果。
+     * dm 设置了多次重复评估时返回各次的平均得分，统计量为各次的合并值。
+     */
+    public static double score(ScoringPolicy policy, EvaluationContext context, DataManager dm, long seed) {
+        return race(policy, context, dm, seed, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * 使用指定评估种子的带阈值评估。重复评估 (replications > 1) 时阈值不生效，每次重复都完整仿真。
+     */
+    public static double race(ScoringPolicy policy, EvaluationContext context, DataManager dm, long seed, double threshold) {
+        int replications = dm.getReplications();
+        return replications > 1 ? scoreReplicated(policy, context, dm, seed, replications).mean : simulate(policy, context, dm, seed, threshold);
+    }
 
-        // 重新填充底层数据源，因为缓存可能在 resetCurrentRunStats 中被清空了
-        for (DataItem item : dataSet) {
-            dm.addDataToRemote(item, item.arrivalTime);
+    /**
+     * 重复评估：第 i 次使用由 seed 派生的第 i 个种子（第 0 次就是 seed 本身）。
+     * 公共随机数模式下 seed 对所有候选解相同，因此每一次重复在候选解之间也是配对的。
+     */
+    public static ReplicatedScore scoreReplicated(ScoringPolicy policy, EvaluationContext context, DataManager dm, long seed, int replications) {
+        double[] scores = new double[replications];
+        DataManager.StatsSnapshot[] runs = new DataManager.StatsSnapshot[replications];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < replications; i++) {
+            scores[i] = simulate(policy, context, dm, i == 0 ? seed : seeds.nextLong(), Double.NEGATIVE_INFINITY);
+            runs[i] = dm.snapshotStats();
         }
+        ReplicatedScore result = new ReplicatedScore(scores);
+        dm.poolStats(runs, result.halfWidth);
+        return result;
+    }
+
+    /**
+     * 重复评估的结果：均值、样本标准差和均值的 95% 置信区间半宽 (t 分布)。
+     */
+    public static final class ReplicatedScore {
+        // t 分布 0.975 分位数，下标为自由度 (1..30)；更大的自由度取正态近似
+        private static final double[] T_975 = {Double.NaN, 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+        public final double[] scores;
+        public final double mean, stdDev, halfWidth;
+
+        ReplicatedScore(double[] scores) {
+            this.scores = scores;
+            int n = scores.length;
+            double sum = 0;
+            for (double s : scores) sum += s;
+            this.mean = sum / n;
+            double squares = 0;
+            for (double s : scores) squares += (s - mean) * (s - mean);
+            this.stdDev = n > 1 ? Math.sqrt(squares / (n - 1)) : 0.0;
+            double t = n - 1 < T_975.length ? T_975[Math.max(1, n - 1)] : 1.960;
+            this.halfWidth = n > 1 ? t * stdDev / Math.sqrt(n) : 0.0;
+        }
+
+        @Override
+        public String toString() { return String.format("%.4f ± %.4f (95%% CI, n=%d)", mean, halfWidth, scores.length); }
+    }
 
-        List<DataItem> futureTasks = new ArrayList<>(Arrays.asList(dataSet));
-        futureTasks.sort(Comparator.comparingLong(item -> item.arrivalTime));
+    /**
+     * 提前终止的累计统计：参与的评估数、被中止的评估数，以及省去的任务仿真占比。
+     */
+    public static String racingSummary() {
+        long simulated = simulatedTasks.sum(), skipped = skippedTasks.sum();
+        return String.format("提前终止: 中止 %d / %d 次评估, 省去 %.1f%% 的任务仿真 (%d / %d)",
+                abortedEvaluations.sum(), racedEvaluations.sum(),
+                100.0 * skipped / Math.max(1, simulated + skipped), skipped, simulated + skipped);
+    }
 
-        List<DataItem> readyQueue = new ArrayList<>();
+    public static boolean hasRacingStats() { return racedEvaluations.sum() > 0; }
+
+    private static double simulate(ScoringPolicy policy, EvaluationContext context, DataManager dm, long seed, double threshold) {
+        dm.beginEvaluation(context, policy, seed);
+        Trace trace = context.trace;
+
+        // 提前终止：在检查点上比较最终得分的上界与阈值。上界离阈值越远，下一个检查点越靠后
+        boolean racing = dm.isRacing() && threshold > Double.NEGATIVE_INFINITY;
+        if (racing) dm.beginRacing();
+        int nextCheckpoint = RACE_INTERVAL;
+
+        // 按到达时间稳定排序的行号
+        int[] futureTasks = context.arrivalOrder;
+
+        // 就绪队列：按调度得分取任务，选择结果与逐个比较完全相同，但不再线性扫描
+        ReadyQueue readyQueue = dm.getReadyQueue();
         int completedTasksCount = 0;
         int futureTaskPointer = 0;
         long currentTime = 0;
 
-        if (!futureTasks.isEmpty()) {
-            currentTime = futureTasks.get(0).arrivalTime;
+        if (futureTasks.length > 0) {
+            currentTime = trace.arrivalTimes[futureTasks[0]];
         }
 
-        while (completedTasksCount < dataSet.length) {
-            while (futureTaskPointer < futureTasks.size() && futureTasks.get(futureTaskPointer).arrivalTime <= currentTime) {
-                readyQueue.add(futureTasks.get(futureTaskPointer));
+        while (completedTasksCount < trace.length()) {
+            while (futureTaskPointer < futureTasks.length && trace.arrivalTimes[futureTasks[futureTaskPointer]] <= currentTime) {
+                readyQueue.add(futureTasks[futureTaskPointer], currentTime);
                 futureTaskPointer++;
             }
 
             if (!readyQueue.isEmpty()) {
-                final long decisionTime = currentTime;
-                DataItem bestTask = readyQueue.stream()
-                        .max(Comparator.comparingDouble(item -> item.getSchedulingScore(decisionTime)))
-                        .orElse(null);
-
-                readyQueue.remove(bestTask);
+                int bestTask = readyQueue.poll(currentTime);
                 long duration = dm.processAndGetDuration(bestTask, currentTime, readyQueue.size());
                 currentTime += duration;
                 completedTasksCount++;
+                if (racing) {
+                    dm.raceProcessed(bestTask);
+                    if (completedTasksCount >= nextCheckpoint) {
+                        double bound = dm.scoreUpperBound();
+                        int remaining = trace.length() - completedTasksCount;
+                        if (bound < threshold) {
+                            dm.abortEvaluation();
+                            dm.recordSimulatedTasks(completedTasksCount);
+                            racedEvaluations.increment();
+                            abortedEvaluations.increment();
+                            simulatedTasks.add(completedTasksCount);
+                            skippedTasks.add(remaining);
+                            return bound;
+                        }
+                        // 上界大致随剩余任务线性下降：跳过剩余任务中与相对差距的一半成比例的部分
+                        double gap = Math.min(1.0, (bound - threshold) / bound);
+                        nextCheckpoint = completedTasksCount + Math.max(RACE_INTERVAL, (int) (remaining * gap / 2));
+                    }
+                }
             } else {
-                if (futureTaskPointer < futureTasks.size()) {
-                    currentTime = futureTasks.get(futureTaskPointer).arrivalTime;
+                if (futureTaskPointer < futureTasks.length) {
+                    currentTime = trace.arrivalTimes[futureTasks[futureTaskPointer]];
                 } else {
                     break;
                 }
             }
         }
+        dm.recordSimulatedTasks(completedTasksCount);
+        if (racing) {
+            racedEvaluations.increment();
+            simulatedTasks.add(completedTasksCount);
+        }
         return dm.getSystemScore();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UpdateSA 的多样性精英档案：最多保存 capacity 个互相之间距离不小于 diversityThreshold 的好解，
+ * 新解与档案中某个解太近时只在得分更高时替换它，档案满时替换得分最低的一个。
+ * 并行回火时各链线程并发地向同一个档案提交新的最佳解，所有方法都是线程安全的；读取时返回副本。
+ */
+public final class EliteArchive {
+    /**
+     * 档案中的一个解。按得分降序比较。
+     */
+    public static final class EliteSolution implements Comparable<EliteSolution> {
+        final double[] solution;
+        final double score;
+
+        EliteSolution(double[] solution, double score) {
+            this.solution = solution;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(EliteSolution other) {
+            return Double.compare(other.score, this.score);
+        }
+    }
+
+    private final int capacity;
+    private final double diversityThreshold;
+    private final List<EliteSolution> elites = new ArrayList<>();
+
+    public EliteArchive(int capacity, double diversityThreshold) {
+        this.capacity = capacity;
+        this.diversityThreshold = diversityThreshold;
+    }
+
+    public synchronized int size() { return elites.size(); }
+
+    public synchronized void offer(EliteSolution newSolution) {
+        for (int i = 0; i < elites.size(); i++) {
+            if (distance(newSolution.solution, elites.get(i).solution) < diversityThreshold) {
+                if (newSolution.score > elites.get(i).score) {
+                    elites.set(i, newSolution);
+                }
+                return;
+            }
+        }
+        if (elites.size() < capacity) {
+            elites.add(newSolution);
+        } else {
+            elites.sort(null);
+            if (newSolution.score > elites.get(elites.size() - 1).score) {
+                elites.set(elites.size() - 1, newSolution);
+            }
+        }
+    }
+
+    /** 按得分降序排好档案并返回副本。 */
+    public synchronized List<EliteSolution> ranked() {
+        elites.sort(null);
+        return new ArrayList<>(elites);
+    }
+
+    /** 按当前顺序返回副本。 */
+    public synchronized List<EliteSolution> snapshot() { return new ArrayList<>(elites); }
+
+    /** 只保留得分最高的 n 个。 */
+    public synchronized void retainTop(int n) {
+        elites.sort(null);
+        while (elites.size() > n) {
+            elites.remove(elites.size() - 1);
+        }
+    }
+
+    private static double distance(double[] s1, double[] s2) {
+        double sum = 0;
+        for (int i = 0; i < s1.length; i++) {
+            sum += (s1[i] - s2[i]) * (s1[i] - s2[i]);
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 每个数据集只构建一次的评估上下文，供所有优化器、所有线程的每一次 DataTest.score 共享（只读）。
+ * 原先每次评估都要做的准备工作在这里一次性完成：
+ * 1.  按到达时间稳定排序的行号；
+ * 2.  "把整个数据集按原顺序装入远端云" 之后各对象的访问状态（频次 = 出现次数 - 1，最近访问时间 = 最后一次出现的到达时间），
+ *     评估开始时直接拷贝到 ObjectState，远端云则在绑定时一次性装满，不再逐条重新填充。
+ * 通过 Trace.evaluationContext() 获取。
+ */
+public final class EvaluationContext {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    final long id;                  // 进程内唯一，作为 ScoreCache 键中的数据集标识
+    final Trace trace;
+    final int[] arrivalOrder;
+    final int[] initialFrequency;
+    final long[] initialLastAccessTime;
+
+    EvaluationContext(Trace trace) {
+        this.id = NEXT_ID.getAndIncrement();
+        this.trace = trace;
+        this.arrivalOrder = IntStream.range(0, trace.length()).boxed()
+                .sorted(Comparator.comparingLong(row -> trace.arrivalTimes[row]))
+                .mapToInt(Integer::intValue).toArray();
+
+        this.initialFrequency = new int[trace.objectCount];
+        this.initialLastAccessTime = new long[trace.objectCount];
+        boolean[] seen = new boolean[trace.objectCount];
+        for (int row = 0; row < trace.length(); row++) {
+            int object = trace.objectOf[row];
+            if (seen[object]) {
+                initialFrequency[object]++;
+            }
+            seen[object] = true;
+            initialLastAccessTime[object] = trace.arrivalTimes[row];
+        }
+    }
+
+    public Trace getTrace() { return trace; }
+}
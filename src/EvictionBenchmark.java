@@ -0,0 +1,99 @@
+import java.io.IOException;
+
+/**
+ * 淘汰策略对比：在 NASA 轨迹前缀和 Zipf 合成轨迹上，用同一组权重、同一条信道噪声 (公共随机数) 完整仿真一次，
+ * 两级缓存使用同一种策略，报告命中率、平均延迟、得分和每个请求的 CPU 开销 (多轮中最快的一轮，包含调度与信道仿真)。
+ * 除 wtinylfu (自带准入) 外，每个策略再在两级缓存前加上准入过滤器 (AdmissionFilter) 各跑一次，标为 "+adm"，并报告本地缓存拒绝的比例。
+ * 之后对每个策略 (不加准入过滤) 把包含式和互斥 (exclusive) 层级结构的命中率与平均延迟并排比较。
+ * 给出平均延迟 SLO 时，标出满足 SLO 的策略中每请求开销最低的一个。
+ * 注意只有 score 策略使用缓存权重；它的结果依赖权重，优化器调整后通常明显好于默认权重。
+ * 用法: java EvictionBenchmark [NASA 行数] [平均延迟 SLO ms (0 为不限)] [轮数] [权重 w1,w2,w3,w4,w5]
+ */
+public class EvictionBenchmark {
+    private static final String[] POLICIES = {EvictionPolicy.SCORE, EvictionPolicy.LRU, EvictionPolicy.LFU, EvictionPolicy.GDSF, EvictionPolicy.ARC, EvictionPolicy.W_TINY_LFU};
+    private static final long LOCAL_CAPACITY = 3000L * 1024, EDGE_CAPACITY = 5000L * 1024;
+    private static final long SEED = 1000;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        double sloMillis = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        ScoringPolicy weights = ScoringPolicy.DEFAULT;
+        if (args.length > 3) {
+            String[] parts = args[3].split(",");
+            double[] w = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) w[i] = Double.parseDouble(parts[i]);
+            weights = ScoringPolicy.of(w);
+        }
+
+        Trace nasa = CsvTraceLoader.load("dataset/processed_nasa_log.csv", "nasa_request").prefix(rows);
+        Trace zipf = Trace.of(new DataGenerator(15000, 1000, SEED).generateData());
+        run("NASA " + nasa.length() + " 行", nasa, weights, rounds, sloMillis);
+        run("Zipf " + zipf.length() + " 行", zipf, weights, rounds, sloMillis);
+    }
+
+    private static void run(String label, Trace trace, ScoringPolicy weights, int rounds, double sloMillis) {
+        System.out.printf("\n=== %s (本地 %d KB, 边缘云 %d KB, 每个策略 %d 轮) ===\n", label, LOCAL_CAPACITY / 1024, EDGE_CAPACITY / 1024, rounds);
+        System.out.printf("%-14s | %-10s | %-10s | %-10s | %-12s | %-8s | %-10s | %-10s\n", "策略", "得分", "本地命中率", "边缘云命中率", "平均延迟 ms", "完成率", "ns/请求", "本地拒绝率");
+        System.out.println("--------------------------------------------------------------------------------------------------------------");
+        EvaluationContext context = trace.evaluationContext();
+        String cheapest = null;
+        double cheapestNanos = Double.MAX_VALUE;
+        for (int variant = 0; variant < 2 * POLICIES.length; variant++) {
+            String policy = POLICIES[variant >> 1];
+            boolean admission = (variant & 1) == 1;
+            if (admission && policy.equals(EvictionPolicy.W_TINY_LFU)) continue;
+            String name = admission ? policy + "+adm" : policy;
+            DataManager dm = new DataManager(LOCAL_CAPACITY, EDGE_CAPACITY, policy, policy);
+            dm.setAdmissionFilters(admission, admission);
+            dm.setCommonRandomNumbers(true);
+            dm.setSeed(SEED);
+            long seed = dm.nextEvaluationSeed();
+            double score = 0;
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long t0 = System.nanoTime();
+                score = DataTest.score(weights, context, dm, seed);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            double nanosPerRequest = (double) best / trace.length();
+            double delayMillis = dm.totalDelaySeconds / Math.max(1, dm.totalTasks) * 1000;
+            AdmissionFilter filter = dm.local.getAdmissionFilter();
+            String rejectRatio = filter == null ? "-" : String.format("%.3f",
+                    (double) filter.getRejected() / Math.max(1, filter.getAdmitted() + filter.getRejected()));
+            System.out.printf("%-14s | %-10.2f | %-10.3f | %-10.3f | %-12.3f | %-8.3f | %-10.0f | %-10s\n", name, score,
+                    (double) dm.localHits / Math.max(1, dm.totalAccessed), (double) dm.cloudHits / Math.max(1, dm.totalAccessed),
+                    delayMillis, (double) dm.completedTasks / Math.max(1, dm.totalTasks), nanosPerRequest, rejectRatio);
+            if (sloMillis > 0 && delayMillis <= sloMillis && nanosPerRequest < cheapestNanos) {
+                cheapest = name;
+                cheapestNanos = nanosPerRequest;
+            }
+        }
+        if (sloMillis > 0) {
+            System.out.println(cheapest != null
+                    ? String.format("满足平均延迟 SLO (≤ %.1f ms) 且每请求开销最低: %s (%.0f ns/请求)", sloMillis, cheapest, cheapestNanos)
+                    : String.format("没有策略满足平均延迟 SLO (≤ %.1f ms)", sloMillis));
+        }
+
+        System.out.printf("\n--- %s: 包含式 / 互斥层级结构 ---\n", label);
+        System.out.printf("%-10s | %-19s | %-19s | %-19s | %-23s\n", "策略", "本地命中率", "边缘云命中率", "总命中率", "平均延迟 ms");
+        System.out.println("-------------------------------------------------------------------------------------------------");
+        for (String name : POLICIES) {
+            double[] inclusive = hierarchyStats(name, false, weights, context);
+            double[] exclusive = hierarchyStats(name, true, weights, context);
+            System.out.printf("%-10s | %-8.3f / %-8.3f | %-8.3f / %-8.3f | %-8.3f / %-8.3f | %-10.3f / %-10.3f\n", name,
+                    inclusive[0], exclusive[0], inclusive[1], exclusive[1], inclusive[0] + inclusive[1], exclusive[0] + exclusive[1], inclusive[2], exclusive[2]);
+        }
+    }
+
+    /** 用公共随机数仿真一次，返回 {本地命中率, 边缘云命中率, 平均延迟 ms}。 */
+    private static double[] hierarchyStats(String policy, boolean exclusive, ScoringPolicy weights, EvaluationContext context) {
+        DataManager dm = new DataManager(LOCAL_CAPACITY, EDGE_CAPACITY, policy, policy);
+        dm.setExclusive(exclusive);
+        dm.setCommonRandomNumbers(true);
+        dm.setSeed(SEED);
+        DataTest.score(weights, context, dm, dm.nextEvaluationSeed());
+        double accessed = Math.max(1, dm.totalAccessed);
+        return new double[]{dm.localHits / accessed, dm.cloudHits / accessed, dm.totalDelaySeconds / Math.max(1, dm.totalTasks) * 1000};
+    }
+}
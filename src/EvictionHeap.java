@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * 缓存淘汰用的索引最小堆，元素是 Trace 的对象编号。
+ * 堆中保存的是 ScoringPolicy.getEvictionKey 的值，它与 getCacheScore 只差一个只依赖 currentTime 的公共平移量，
+ * 所以堆顶就是 evictOne 原先全量扫描时找到的最小分数项。
+ * 键相等时按 id 升序，与原先在按 id 排序的列表上扫描时 "先遇到者优先" 的规则一致。
+ */
+class EvictionHeap {
+    private int[] objects = new int[16];
+    private double[] keys = new double[16];
+    private int[] ids = new int[16];
+    private int size = 0;
+    // 对象在堆数组中的下标（-1 表示不在堆中），用于 O(log n) 的更新与删除
+    private int[] positions = new int[16];
+
+    public EvictionHeap() { Arrays.fill(positions, -1); }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public boolean contains(int object) { return object < positions.length && positions[object] >= 0; }
+    public int objectAt(int index) { return objects[index]; }
+    public int peek() { return size == 0 ? -1 : objects[0]; }
+    public double keyOf(int object) { return keys[positions[object]]; }
+
+    public void add(int object, int id, double key) {
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        if (object >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(object + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        objects[size] = object;
+        keys[size] = key;
+        ids[size] = id;
+        positions[object] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * 元素的键发生变化（frequency 或 lastAccessTime 被更新）后调用；不在堆中的对象直接忽略。
+     */
+    public void update(int object, double key) {
+        if (!contains(object)) return;
+        int i = positions[object];
+        double old = keys[i];
+        keys[i] = key;
+        if (key < old) siftUp(i); else siftDown(i);
+    }
+
+    public boolean remove(int object) {
+        if (!contains(object)) return false;
+        int i = positions[object];
+        positions[object] = -1;
+        size--;
+        if (i != size) {
+            move(size, i);
+            siftUp(i);
+            siftDown(positions[objects[i]]);
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) positions[objects[i]] = -1;
+        size = 0;
+    }
+
+    private boolean less(int a, int b) {
+        if (keys[a] != keys[b]) return keys[a] < keys[b];
+        return ids[a] < ids[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int smallest = (left + 1 < size && less(left + 1, left)) ? left + 1 : left;
+            if (!less(smallest, i)) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int ts = objects[a]; objects[a] = objects[b]; objects[b] = ts;
+        double tk = keys[a]; keys[a] = keys[b]; keys[b] = tk;
+        int ti = ids[a]; ids[a] = ids[b]; ids[b] = ti;
+        positions[objects[a]] = a;
+        positions[objects[b]] = b;
+    }
+
+    private void move(int from, int to) {
+        objects[to] = objects[from];
+        keys[to] = keys[from];
+        ids[to] = ids[from];
+        positions[objects[to]] = to;
+    }
+}
@@ -0,0 +1,443 @@
+import java.util.Arrays;
+
+/**
+ * 有界缓存层 (Cathe) 的淘汰策略。Cathe 负责驻留标记、容量记账和淘汰后的下放 (degrade)，策略只决定 "淘汰谁"。
+ * 对象都用 Trace 的对象编号表示；每个 Cathe 实例有自己的策略实例，各层可以使用不同的策略。
+ *
+ * 回调顺序：put 一个不在本层的对象时，先反复调用 victim 并 removed(victim, true) 直到放得下，再调用 inserted；
+ * 准入过滤器在第一次 victim 之后拒绝了它时，不淘汰任何对象，改为调用 rejected，策略应撤销 victim 造成的状态变化。
+ * 本层命中 (get 命中或 put 已驻留的对象) 时调用 touched。对象的共享访问状态 (ObjectState 的频次、最近访问时间)
+ * 更新后，层级链上所有持有该对象的层都会收到 stateChanged —— 只有依赖这份共享状态的 Score 策略需要处理它。
+ *
+ * 可选的策略 (名称不区分大小写)：
+ * score     按 ScoringPolicy.getCacheScore 淘汰得分最低者 (默认，优化器调整的就是它的权重)，O(log n)
+ * lru       最近最少使用，O(1)
+ * lfu       本层内访问次数最少者，次数相同时淘汰最久未用的，O(log n)
+ * gdsf      GreedyDual-Size-Frequency：优先级 = L + 访问次数 / 大小，L 随淘汰抬升 (老化)，偏向保留小而热的对象，O(log n)
+ * arc       自适应替换缓存，按字节计量的 T1/T2 与幽灵列表 B1/B2，在 "最近" 与 "频繁" 之间自适应，O(1)
+ * wtinylfu  W-TinyLFU：1% 的 LRU 窗口 + 分段 LRU 主区，窗口淘汰者与主区淘汰者按 FrequencySketch 的频次估计决胜，O(1)
+ * 只有 score 策略使用缓存权重 (w1, w2, w4_cache)；其他策略下优化器的缓存权重不起作用，调度权重照常生效。
+ */
+interface EvictionPolicy {
+    String SCORE = "score", LRU = "lru", LFU = "lfu", GDSF = "gdsf", ARC = "arc", W_TINY_LFU = "wtinylfu";
+
+    /** Main 为本地缓存和边缘云选择的策略：-Dcache.local.policy / -Dcache.cloud.policy，默认都是 score。 */
+    String LOCAL = System.getProperty("cache.local.policy", SCORE);
+    String CLOUD = System.getProperty("cache.cloud.policy", SCORE);
+
+    String name();
+
+    /** 绑定对象状态和本层容量并清空。 */
+    void bind(ObjectState state, long capacity);
+
+    /** 对象表增长后调用（流式评估）。 */
+    void ensureObjects(int n);
+
+    /** 切换权重。 */
+    default void setScoring(ScoringPolicy policy) {}
+
+    void inserted(int object, long currentTime);
+
+    void touched(int object, long currentTime);
+
+    default void stateChanged(int object) {}
+
+    /**
+     * 为放入 incoming 需要淘汰的对象；本层为空时返回 -1。返回值必须是本层驻留的对象。
+     */
+    int victim(int incoming, long currentTime);
+
+    /** 为 incoming 调用 victim 之后 incoming 被准入过滤器拒绝：本层内容不变，撤销 victim 对策略状态的修改。 */
+    default void rejected(int incoming) {}
+
+    /** 对象离开本层：evicted 为 true 表示是 victim 选出的淘汰，否则是被显式移除。 */
+    void removed(int object, boolean evicted);
+
+    void clear();
+
+    /**
+     * 按名称创建策略实例。
+     */
+    static EvictionPolicy of(String name) {
+        switch (name.toLowerCase()) {
+            case SCORE: return new Score();
+            case LRU: return new Lru();
+            case LFU: return new Lfu();
+            case GDSF: return new Gdsf();
+            case ARC: return new Arc();
+            case W_TINY_LFU: case "w-tinylfu": return new WTinyLfu();
+            default: throw new IllegalArgumentException("未知的淘汰策略: " + name + " (可选: score, lru, lfu, gdsf, arc, wtinylfu)");
+        }
+    }
+
+    /**
+     * 按 ScoringPolicy.getEvictionKey 组织的最小堆，堆顶就是 getCacheScore 最小的缓存项 (原先 Cathe 内置的唯一策略)。
+     */
+    final class Score implements EvictionPolicy {
+        private final EvictionHeap heap = new EvictionHeap();
+        private long baseTime = Long.MIN_VALUE;
+        private ScoringPolicy policy = ScoringPolicy.DEFAULT;
+        private ObjectState state;
+
+        public String name() { return SCORE; }
+        public void bind(ObjectState state, long capacity) { this.state = state; clear(); }
+        public void ensureObjects(int n) {}
+
+        /** 淘汰键依赖权重，本层仍有缓存项时需要重新计算它们的键。 */
+        public void setScoring(ScoringPolicy policy) {
+            this.policy = policy;
+            if (heap.isEmpty()) return;
+            for (int object = 0; object < state.objectCount; object++) {
+                if (heap.contains(object)) heap.update(object, key(object));
+            }
+        }
+
+        public void inserted(int object, long currentTime) {
+            if (heap.isEmpty()) baseTime = currentTime;
+            heap.add(object, state.objectIds[object], key(object));
+        }
+
+        public void touched(int object, long currentTime) {}
+        public void stateChanged(int object) { heap.update(object, key(object)); }
+        public int victim(int incoming, long currentTime) { return heap.peek(); }
+        public void removed(int object, boolean evicted) { heap.remove(object); }
+        public void clear() { heap.clear(); }
+
+        private double key(int object) {
+            return policy.getEvictionKey(state.frequency[object], state.lastAccessTime[object], state.objectSizes[object], baseTime);
+        }
+    }
+
+    final class Lru implements EvictionPolicy {
+        private final ObjectList list = new ObjectList();
+
+        public String name() { return LRU; }
+        public void bind(ObjectState state, long capacity) { list.ensure(state.objectCount); clear(); }
+        public void ensureObjects(int n) { list.ensure(n); }
+        public void inserted(int object, long currentTime) { list.addFirst(object, 0); }
+        public void touched(int object, long currentTime) { list.moveToFront(object); }
+        public int victim(int incoming, long currentTime) { return list.last(); }
+        public void removed(int object, boolean evicted) { list.remove(object, 0); }
+        public void clear() { list.clear(); }
+    }
+
+    /**
+     * 本层内的访问次数 (进入本层时为 1)，键 = 次数 · 2^32 + 访问序号，次数相同时淘汰最久未用的。
+     */
+    final class Lfu implements EvictionPolicy {
+        private static final int MAX_COUNT = 1 << 20;   // 键保持在 double 可以精确表示的范围内
+        private final EvictionHeap heap = new EvictionHeap();
+        private int[] counts = new int[0];
+        private long sequence = 0;
+
+        public String name() { return LFU; }
+        public void bind(ObjectState state, long capacity) { ensureObjects(state.objectCount); clear(); }
+        public void ensureObjects(int n) { if (counts.length < n) counts = Arrays.copyOf(counts, Math.max(n, counts.length * 2)); }
+
+        public void inserted(int object, long currentTime) {
+            counts[object] = 1;
+            heap.add(object, object, key(object));
+        }
+
+        public void touched(int object, long currentTime) {
+            if (counts[object] < MAX_COUNT) counts[object]++;
+            heap.update(object, key(object));
+        }
+
+        public int victim(int incoming, long currentTime) { return heap.peek(); }
+        public void removed(int object, boolean evicted) { heap.remove(object); }
+        public void clear() { heap.clear(); sequence = 0; }
+
+        private double key(int object) { return counts[object] * 4294967296.0 + (sequence++ & 0xFFFFFFFFL); }
+    }
+
+    /**
+     * GreedyDual-Size-Frequency (代价取 1)：H = L + 访问次数 / 大小(KB)，淘汰 H 最小者并把 L 抬升到它的 H。
+     */
+    final class Gdsf implements EvictionPolicy {
+        private final EvictionHeap heap = new EvictionHeap();
+        private int[] counts = new int[0];
+        private double inflation = 0;
+        private ObjectState state;
+
+        public String name() { return GDSF; }
+        public void bind(ObjectState state, long capacity) { this.state = state; ensureObjects(state.objectCount); clear(); }
+        public void ensureObjects(int n) { if (counts.length < n) counts = Arrays.copyOf(counts, Math.max(n, counts.length * 2)); }
+
+        public void inserted(int object, long currentTime) {
+            counts[object] = 1;
+            heap.add(object, state.objectIds[object], priority(object));
+        }
+
+        public void touched(int object, long currentTime) {
+            counts[object]++;
+            heap.update(object, priority(object));
+        }
+
+        public int victim(int incoming, long currentTime) { return heap.peek(); }
+
+        public void removed(int object, boolean evicted) {
+            if (evicted) inflation = Math.max(inflation, heap.keyOf(object));
+            heap.remove(object);
+        }
+
+        public void clear() { heap.clear(); inflation = 0; }
+
+        private double priority(int object) { return inflation + counts[object] / Math.max(1e-3, state.objectSizes[object] / 1024.0); }
+    }
+
+    /**
+     * 自适应替换缓存 (ARC) 的按字节版本：T1 (只访问过一次) 与 T2 (访问过多次) 是驻留对象，B1/B2 记录最近从它们淘汰的对象 (只有编号)。
+     * 目标 p 是 T1 应占的字节数：在 B1 中再次命中说明 T1 太小，p 增大；在 B2 中再次命中则 p 减小。
+     * 幽灵列表合计不超过本层容量，保持 |T1| + |B1| ≤ c、|T1| + |T2| + |B1| + |B2| ≤ 2c (都按字节)。
+     */
+    final class Arc implements EvictionPolicy {
+        private static final int T1 = 0, T2 = 1, B1 = 2, B2 = 3;
+        private final ObjectList lists = new ObjectList(4);
+        private long capacity;
+        private double target = 0;      // p
+        private int adaptedFor = -1;    // 本次插入已经按幽灵命中调整过 p 的对象
+        private double targetBefore;    // 这次调整之前的 p，插入被拒绝时恢复
+        private ObjectState state;
+
+        public String name() { return ARC; }
+        public void bind(ObjectState state, long capacity) { this.state = state; this.capacity = capacity; lists.ensure(state.objectCount); clear(); }
+        public void ensureObjects(int n) { lists.ensure(n); }
+
+        public void inserted(int object, long currentTime) {
+            adapt(object);
+            adaptedFor = -1;
+            int size = state.objectSizes[object];
+            int ghost = lists.listOf(object);
+            if (ghost == B1 || ghost == B2) {
+                lists.remove(object, ghost);
+                lists.addFirst(object, T2, size);
+            } else {
+                lists.addFirst(object, T1, size);
+            }
+            trimGhosts();
+        }
+
+        public void touched(int object, long currentTime) {
+            int list = lists.listOf(object);
+            if (list == T1) {
+                lists.remove(object, T1);
+                lists.addFirst(object, T2, state.objectSizes[object]);
+            } else {
+                lists.moveToFront(object);
+            }
+        }
+
+        public int victim(int incoming, long currentTime) {
+            adapt(incoming);
+            long t1 = lists.bytes(T1);
+            boolean fromT1 = t1 > 0 && (t1 > target || (lists.listOf(incoming) == B2 && t1 >= target) || lists.isEmpty(T2));
+            return fromT1 ? lists.last(T1) : lists.last(T2);
+        }
+
+        public void removed(int object, boolean evicted) {
+            int list = lists.listOf(object);
+            lists.remove(object, list);
+            if (evicted) lists.addFirst(object, list == T1 ? B1 : B2, state.objectSizes[object]);
+        }
+
+        public void rejected(int incoming) {
+            if (adaptedFor == incoming) target = targetBefore;
+            adaptedFor = -1;
+        }
+
+        public void clear() { lists.clear(); target = 0; adaptedFor = -1; }
+
+        /** 幽灵命中时调整 p，步长按两条幽灵列表的字节数之比放大。同一次插入只调整一次。 */
+        private void adapt(int object) {
+            if (adaptedFor == object) return;
+            adaptedFor = object;
+            targetBefore = target;
+            int size = state.objectSizes[object];
+            long b1 = lists.bytes(B1), b2 = lists.bytes(B2);
+            int list = lists.listOf(object);
+            if (list == B1) {
+                target = Math.min(capacity, target + size * Math.max(1.0, (double) b2 / Math.max(1, b1)));
+            } else if (list == B2) {
+                target = Math.max(0, target - size * Math.max(1.0, (double) b1 / Math.max(1, b2)));
+            }
+        }
+
+        private void trimGhosts() {
+            while (!lists.isEmpty(B1) && lists.bytes(T1) + lists.bytes(B1) > capacity) lists.remove(lists.last(B1), B1);
+            while (!lists.isEmpty(B2) && lists.bytes(T1) + lists.bytes(T2) + lists.bytes(B1) + lists.bytes(B2) > 2 * capacity) lists.remove(lists.last(B2), B2);
+        }
+    }
+
+    /**
+     * W-TinyLFU：新对象先进入占本层 1% 的 LRU 窗口；本层已满而窗口又超出份额时，窗口的 LRU 对象 (候选) 要进入主区，
+     * 与主区的淘汰者 (试用段的 LRU，试用段为空时取保护段的 LRU) 比较 FrequencySketch 的频次估计，频次低的一方被淘汰。
+     * 主区是分段 LRU：试用段中再次命中的对象升入保护段 (占主区的 80%)，保护段超出时把它的 LRU 对象降回试用段。
+     */
+    final class WTinyLfu implements EvictionPolicy {
+        private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+        private static final double WINDOW_SHARE = 0.01, PROTECTED_SHARE = 0.8;
+        private final ObjectList lists = new ObjectList(3);
+        private FrequencySketch sketch;
+        private int promoted = -1;      // 本次插入的 victim 从窗口转入试用段的候选，插入被拒绝时退回窗口
+        private long windowCapacity, protectedCapacity;
+        private ObjectState state;
+
+        public String name() { return W_TINY_LFU; }
+
+        public void bind(ObjectState state, long capacity) {
+            this.state = state;
+            this.windowCapacity = Math.max(1, (long) (capacity * WINDOW_SHARE));
+            this.protectedCapacity = (long) ((capacity - windowCapacity) * PROTECTED_SHARE);
+            sketch = FrequencySketch.forCapacity(capacity);
+            lists.ensure(state.objectCount);
+            clear();
+        }
+
+        public void ensureObjects(int n) { lists.ensure(n); }
+
+        /** 新对象进入窗口；本层还有空位 (没有经过 victim) 时，窗口超出份额的部分直接转入试用段。 */
+        public void inserted(int object, long currentTime) {
+            promoted = -1;
+            sketch.increment(object);
+            lists.addFirst(object, WINDOW, state.objectSizes[object]);
+            while (lists.bytes(WINDOW) > windowCapacity && lists.last(WINDOW) != object) {
+                int overflow = lists.last(WINDOW);
+                lists.remove(overflow, WINDOW);
+                lists.addFirst(overflow, PROBATION, state.objectSizes[overflow]);
+            }
+        }
+
+        public void touched(int object, long currentTime) {
+            sketch.increment(object);
+            if (lists.listOf(object) == PROBATION) {
+                lists.remove(object, PROBATION);
+                lists.addFirst(object, PROTECTED, state.objectSizes[object]);
+                while (lists.bytes(PROTECTED) > protectedCapacity && lists.last(PROTECTED) != object) {
+                    int demoted = lists.last(PROTECTED);
+                    lists.remove(demoted, PROTECTED);
+                    lists.addFirst(demoted, PROBATION, state.objectSizes[demoted]);
+                }
+            } else {
+                lists.moveToFront(object);
+            }
+        }
+
+        public int victim(int incoming, long currentTime) {
+            // 窗口放不下新对象时，窗口的 LRU 对象转入主区的试用段，与主区的淘汰者决胜
+            int mainVictim = mainVictim();
+            if (!lists.isEmpty(WINDOW) && mainVictim >= 0 && lists.bytes(WINDOW) + state.objectSizes[incoming] > windowCapacity) {
+                int candidate = lists.last(WINDOW);
+                if (sketch.frequency(candidate) <= sketch.frequency(mainVictim)) return candidate;
+                lists.remove(candidate, WINDOW);
+                lists.addFirst(candidate, PROBATION, state.objectSizes[candidate]);
+                promoted = candidate;
+                return mainVictim;
+            }
+            return mainVictim >= 0 ? mainVictim : lists.last(WINDOW);
+        }
+
+        public void removed(int object, boolean evicted) { lists.remove(object, lists.listOf(object)); }
+
+        public void rejected(int incoming) {
+            if (promoted >= 0 && lists.listOf(promoted) == PROBATION) {
+                lists.remove(promoted, PROBATION);
+                lists.addLast(promoted, WINDOW, state.objectSizes[promoted]);
+            }
+            promoted = -1;
+        }
+
+        public void clear() { lists.clear(); promoted = -1; if (sketch != null) sketch.clear(); }
+
+        private int mainVictim() {
+            if (!lists.isEmpty(PROBATION)) return lists.last(PROBATION);
+            return lists.isEmpty(PROTECTED) ? -1 : lists.last(PROTECTED);
+        }
+    }
+
+    /**
+     * 若干条以对象编号为元素的双向链表 (表头为最近使用)，共享 prev/next 数组，一个对象同时至多在一条链表中。
+     * 每条链表记录元素个数和字节数，增删和移到表头都是 O(1)。
+     */
+    final class ObjectList {
+        private static final int NONE = -1;
+        private final int[] heads, tails;
+        private final long[] bytes;
+        private int[] prev = new int[0], next = new int[0];
+        private byte[] listOf = new byte[0];   // 所在链表，NONE 表示不在任何链表中
+        private int[] sizes = new int[0];       // 加入时记录的字节数
+
+        ObjectList() { this(1); }
+
+        ObjectList(int lists) {
+            heads = new int[lists];
+            tails = new int[lists];
+            bytes = new long[lists];
+            Arrays.fill(heads, NONE);
+            Arrays.fill(tails, NONE);
+        }
+
+        void ensure(int n) {
+            if (prev.length >= n) return;
+            int old = prev.length, length = Math.max(n, old * 2);
+            prev = Arrays.copyOf(prev, length);
+            next = Arrays.copyOf(next, length);
+            sizes = Arrays.copyOf(sizes, length);
+            listOf = Arrays.copyOf(listOf, length);
+            Arrays.fill(listOf, old, length, (byte) NONE);
+        }
+
+        int listOf(int object) { return listOf[object]; }
+        boolean isEmpty(int list) { return heads[list] == NONE; }
+        long bytes(int list) { return bytes[list]; }
+        int last() { return tails[0]; }
+        int last(int list) { return tails[list]; }
+
+        void addFirst(int object, int list) { addFirst(object, list, 0); }
+
+        void addFirst(int object, int list, int size) {
+            listOf[object] = (byte) list;
+            sizes[object] = size;
+            bytes[list] += size;
+            prev[object] = NONE;
+            next[object] = heads[list];
+            if (heads[list] != NONE) prev[heads[list]] = object; else tails[list] = object;
+            heads[list] = object;
+        }
+
+        void addLast(int object, int list, int size) {
+            listOf[object] = (byte) list;
+            sizes[object] = size;
+            bytes[list] += size;
+            next[object] = NONE;
+            prev[object] = tails[list];
+            if (tails[list] != NONE) next[tails[list]] = object; else heads[list] = object;
+            tails[list] = object;
+        }
+
+        void remove(int object, int list) {
+            if (list == NONE || listOf[object] != list) return;
+            int p = prev[object], n = next[object];
+            if (p != NONE) next[p] = n; else heads[list] = n;
+            if (n != NONE) prev[n] = p; else tails[list] = p;
+            bytes[list] -= sizes[object];
+            listOf[object] = NONE;
+        }
+
+        void moveToFront(int object) {
+            int list = listOf[object];
+            if (list == NONE || heads[list] == object) return;
+            int size = sizes[object];
+            remove(object, list);
+            addFirst(object, list, size);
+        }
+
+        void clear() {
+            for (int list = 0; list < heads.length; list++) {
+                for (int object = heads[list]; object != NONE; object = next[object]) listOf[object] = NONE;
+                heads[list] = tails[list] = NONE;
+                bytes[list] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * 固定内存的访问频次估计 (count-min sketch)，供 W-TinyLFU 淘汰策略和准入过滤使用。
+ * 4 行计数器，每个计数器 4 位 (上限 15)，每个 long 存 16 个；估计值取 4 行中的最小值，只会高估、不会低估。
+ * 每记录 sampleSize 次访问，所有计数器减半 (老化)，使估计值反映最近的热度而不是整条轨迹的累计次数。
+ * 内存只由宽度决定，与轨迹长度和对象数无关。
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0x97CB3127L, 0xC2B2AE3DL, 0x27D4EB2FL, 0x165667B1L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int TYPICAL_OBJECT_BYTES = 4096;   // 按容量估计对象数时假设的平均对象大小
+
+    private final long[] table;     // DEPTH 行连续存放，每行 width / 16 个 long
+    private final int rowLongs;
+    private final int indexMask;    // width - 1
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * @param expectedEntries 预计同时需要区分的对象数（通常是缓存能容纳的对象数），宽度取不小于它的 2 的幂，至少 64。
+     */
+    FrequencySketch(int expectedEntries) {
+        int width = 64;
+        while (width < expectedEntries && width < (1 << 26)) width <<= 1;
+        this.rowLongs = width >>> 4;
+        this.indexMask = width - 1;
+        this.table = new long[DEPTH * rowLongs];
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * 供容量为 capacity 字节的缓存层使用的草图：预计对象数取 capacity / 4 KB (至少 64，至多 2^24)。
+     * W-TinyLFU 淘汰策略和准入过滤器都由此创建，同一容量的两种草图大小相同。
+     */
+    static FrequencySketch forCapacity(long capacity) {
+        return new FrequencySketch((int) Math.min(1 << 24, Math.max(64, capacity / TYPICAL_OBJECT_BYTES)));
+    }
+
+    /** 记录一次访问。 */
+    void increment(int key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(key, row);
+            int slot = row * rowLongs + (index >>> 4);
+            int shift = (index & 15) << 2;
+            if (((table[slot] >>> shift) & 0xF) != 0xF) {
+                table[slot] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) age();
+    }
+
+    /** 估计的访问次数 (0..15)。 */
+    int frequency(int key) {
+        int min = 0xF;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(key, row);
+            int count = (int) ((table[row * rowLongs + (index >>> 4)] >>> ((index & 15) << 2)) & 0xF);
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+
+    /** 清空，开始新的一次仿真。 */
+    void clear() {
+        Arrays.fill(table, 0);
+        additions = 0;
+    }
+
+    // 所有计数器同时减半：每个 4 位计数器右移一位，再清掉从相邻计数器移进来的最高位
+    private void age() {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+        additions >>>= 1;
+    }
+
+    private int index(int key, int row) {
+        long h = (key + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) h & indexMask;
+    }
+}
@@ -1,78 +1,80 @@
-import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Random;
 
-public class GA {
+public class GA extends AbstractOptimizer {
     private static final int POP_SIZE = 20;
     private static final int GENERATIONS = 100;
     private static final double MUTATION_RATE = 0.5;
     private static final int TOURNAMENT_SIZE = 2;
-    private static final int DIMENSIONS = 5;
 
-    private DataItem[] testData;
-    private DataManager baseDM;
-    private Random random;
+    private double[][] population;
+    private double[] thresholds = null;
+    private boolean initialized = false;
+    private int gen = 0;
 
-    public GA(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
+    public GA(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
     }
 
-    private double evaluate(double[] weights) {
-        return DataTest.score(weights, testData, baseDM);
-    }
+    @Override
+    public String name() { return "GA"; }
 
-    public double run(PrintStream out, double baselineScore) {
-        double[][] population = new double[POP_SIZE][DIMENSIONS];
-        for (int i = 0; i < POP_SIZE; i++) {
-            for (int j = 0; j < DIMENSIONS; j++) {
-                population[i][j] = random.nextDouble();
+    @Override
+    public Request ask() {
+        if (population == null) {
+            population = new double[POP_SIZE][DIMENSIONS];
+            for (int i = 0; i < POP_SIZE; i++) {
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    population[i][j] = random.nextDouble();
+                }
             }
+            return Request.single(population[0].clone());
         }
+        if (gen == GENERATIONS) return null;
+        // 并行评估整个旧种群，为锦标赛选择做准备。
+        // 提前终止的阈值取上一代得分的中位数：被中止的个体以其得分上界参与选择，仍低于所有跑完且超过中位数的个体
+        return Request.batch(population, thresholds);
+    }
 
-        double[] bestIndividual = population[0].clone();
-        double bestScore = evaluate(bestIndividual);
-        baseDM.saveBestStats();
-
-        for (int gen = 0; gen < GENERATIONS; gen++) {
-            double[][] newPopulation = new double[POP_SIZE][DIMENSIONS];
-            // 评估整个旧种群，为锦标赛选择做准备
-            double[] scores = new double[POP_SIZE];
-            for(int i = 0; i < POP_SIZE; i++) {
-                scores[i] = evaluate(population[i]);
-                if (scores[i] > bestScore) {
-                    bestScore = scores[i];
-                    bestIndividual = population[i].clone();
-                    baseDM.saveBestStats();
-                }
-            }
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        if (!initialized) {
+            initialized = true;
+            offer(population[0], results[0]);
+            return;
+        }
 
-            for (int i = 0; i < POP_SIZE; i++) {
-                double[] parent1 = tournamentSelection(population, scores);
-                double[] parent2 = tournamentSelection(population, scores);
-                double[] child = crossover(parent1, parent2);
-                mutate(child);
-                newPopulation[i] = child;
-            }
-            population = newPopulation;
-            double improvement = bestScore - baselineScore;
-            out.printf("Gen %2d: Improvement = %.4f\n", gen + 1, Math.max(0, improvement));
+        double[] scores = new double[POP_SIZE];
+        for (int i = 0; i < POP_SIZE; i++) {
+            scores[i] = results[i].score;
+            offer(population[i], results[i]);
         }
 
-        out.println("\n=== GA Finished ===");
-        double[] finalNormalizedBest = bestIndividual.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        baseDM.printStats(out);
-        return bestScore;
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        thresholds = new double[POP_SIZE];
+        Arrays.fill(thresholds, sorted[POP_SIZE / 2]);
+
+        double[][] newPopulation = new double[POP_SIZE][DIMENSIONS];
+        for (int i = 0; i < POP_SIZE; i++) {
+            double[] parent1 = tournamentSelection(population, scores, random);
+            double[] parent2 = tournamentSelection(population, scores, random);
+            double[] child = crossover(parent1, parent2, random);
+            mutate(child, random);
+            newPopulation[i] = child;
+        }
+        population = newPopulation;
+        gen++;
+        progress(String.format("Gen %2d", gen));
     }
 
-    private double[] tournamentSelection(double[][] population, double[] scores) {
+    // --- 遗传算子：IslandGA 的各个岛也使用它们，两者的比较因此只差在种群结构上 ---
+
+    static double[] tournamentSelection(double[][] population, double[] scores, Random random) {
         int bestIndex = -1;
         double bestScore = -Double.MAX_VALUE;
         for (int i = 0; i < TOURNAMENT_SIZE; i++) {
-            int index = random.nextInt(POP_SIZE);
+            int index = random.nextInt(population.length);
             if (scores[index] > bestScore) {
                 bestScore = scores[index];
                 bestIndex = index;
@@ -81,6 +83,6 @@ public class GA {
         return population[bestIndex].clone();
     }
 
-    private double[] crossover(double[] p1, double[] p2) { double[] c = new double[DIMENSIONS]; int cp = random.nextInt(DIMENSIONS); for(int i=0;i<DIMENSIONS;i++) c[i] = i<cp?p1[i]:p2[i]; return c; }
-    private void mutate(double[] ind) { for(int i=0;i<DIMENSIONS;i++) if(random.nextDouble()<MUTATION_RATE) { ind[i]+=random.nextGaussian()*0.2; if(ind[i]<0)ind[i]=0; if(ind[i]>1)ind[i]=1; } }
-}
\ No newline at end of file
+    static double[] crossover(double[] p1, double[] p2, Random random) { double[] c = new double[DIMENSIONS]; int cp = random.nextInt(DIMENSIONS); for(int i=0;i<DIMENSIONS;i++) c[i] = i<cp?p1[i]:p2[i]; return c; }
+    static void mutate(double[] ind, Random random) { for(int i=0;i<DIMENSIONS;i++) if(random.nextDouble()<MUTATION_RATE) { ind[i]+=random.nextGaussian()*0.2; if(ind[i]<0)ind[i]=0; if(ind[i]>1)ind[i]=1; } }
+}
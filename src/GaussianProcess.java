@@ -0,0 +1,150 @@
+import java.util.List;
+
+/**
+ * 高斯过程回归，供 SurrogateOptimizer 使用：各向同性的 Matérn 5/2 核，观测值先标准化为均值 0、方差 1。
+ * 长度尺度和噪声 (nugget) 在一个小网格上按对数边际似然选取；训练点只有几百个，直接用 Cholesky 分解。
+ */
+final class GaussianProcess {
+    private static final double[] LENGTH_SCALES = {0.05, 0.1, 0.2, 0.35, 0.5, 0.8, 1.2};
+    private static final double[] NUGGETS = {1e-6, 1e-4, 1e-2, 0.1};
+    private static final double SQRT5 = Math.sqrt(5);
+
+    private double[][] x;
+    private double[] y;         // 标准化后的观测值
+    private double yMean, yScale;
+    private double lengthScale, nugget;
+    private double[][] chol;    // K + nugget·I 的下三角 Cholesky 因子
+    private double[] alpha;     // (K + nugget·I)^-1 y
+
+    /**
+     * 用 (xs, ys) 训练，在网格上选出对数边际似然最大的超参数。
+     */
+    void fit(List<double[]> xs, List<Double> ys) {
+        load(xs, ys);
+        double bestLikelihood = Double.NEGATIVE_INFINITY;
+        double bestLength = LENGTH_SCALES[LENGTH_SCALES.length - 1], bestNugget = NUGGETS[NUGGETS.length - 1];
+        for (double l : LENGTH_SCALES) {
+            for (double n : NUGGETS) {
+                double likelihood = factor(l, n);
+                if (likelihood > bestLikelihood) {
+                    bestLikelihood = likelihood;
+                    bestLength = l;
+                    bestNugget = n;
+                }
+            }
+        }
+        factorOrIncreaseNugget(bestLength, bestNugget);
+    }
+
+    /**
+     * 沿用当前的超参数，只用新的训练集重新分解（批量选点时加入"假想观测"用）。
+     */
+    void refit(List<double[]> xs, List<Double> ys) {
+        load(xs, ys);
+        factorOrIncreaseNugget(lengthScale, nugget);
+    }
+
+    /**
+     * load 之后必须得到与新训练集匹配的 chol 和 alpha：分解失败 (数值上不正定) 时依次换用更大的 nugget 重试，
+     * 先取网格中更大的值，再逐次放大 10 倍；始终失败 (例如训练点含 NaN) 时抛出异常，不留下与 x 大小不符的旧分解。
+     */
+    private void factorOrIncreaseNugget(double l, double n) {
+        if (factor(l, n) > Double.NEGATIVE_INFINITY) return;
+        for (double larger : NUGGETS) {
+            if (larger > n && factor(l, larger) > Double.NEGATIVE_INFINITY) return;
+        }
+        for (double larger = Math.max(n, NUGGETS[NUGGETS.length - 1]) * 10; larger <= 1e6; larger *= 10) {
+            if (factor(l, larger) > Double.NEGATIVE_INFINITY) return;
+        }
+        throw new IllegalStateException("高斯过程协方差矩阵无法分解 (长度尺度 " + l + ", " + x.length + " 个训练点)");
+    }
+
+    double getLengthScale() { return lengthScale; }
+
+    /** 把原始得分换算到标准化尺度。 */
+    double standardize(double score) { return (score - yMean) / yScale; }
+
+    /** 把标准化尺度上的值换算回原始得分。 */
+    double unstandardize(double value) { return value * yScale + yMean; }
+
+    /**
+     * @return {均值, 标准差}，都在标准化尺度上。
+     */
+    double[] predict(double[] point) {
+        int n = x.length;
+        double[] v = new double[n];
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            v[i] = kernel(point, x[i], lengthScale);
+            mean += v[i] * alpha[i];
+        }
+        // v = L^-1 k*，方差 = k(x, x) - v·v
+        double variance = 1.0;
+        for (int i = 0; i < n; i++) {
+            double s = v[i];
+            for (int j = 0; j < i; j++) s -= chol[i][j] * v[j];
+            v[i] = s / chol[i][i];
+            variance -= v[i] * v[i];
+        }
+        return new double[]{mean, Math.sqrt(Math.max(variance, 1e-12))};
+    }
+
+    private void load(List<double[]> xs, List<Double> ys) {
+        int n = xs.size();
+        x = xs.toArray(new double[n][]);
+        double sum = 0, sumSq = 0;
+        for (double score : ys) { sum += score; sumSq += score * score; }
+        yMean = sum / n;
+        double variance = sumSq / n - yMean * yMean;
+        yScale = variance > 1e-12 ? Math.sqrt(variance) : 1.0;
+        y = new double[n];
+        for (int i = 0; i < n; i++) y[i] = (ys.get(i) - yMean) / yScale;
+    }
+
+    /**
+     * 用给定超参数分解协方差矩阵并求 alpha，返回对数边际似然；矩阵不正定时返回负无穷。
+     * 只有分解成功时才写入 chol、alpha 和超参数。
+     */
+    private double factor(double l, double n) {
+        int size = x.length;
+        double[][] L = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j <= i; j++) {
+                double s = kernel(x[i], x[j], l) + (i == j ? n : 0);
+                for (int k = 0; k < j; k++) s -= L[i][k] * L[j][k];
+                if (i == j) {
+                    if (!(s > 0)) return Double.NEGATIVE_INFINITY;
+                    L[i][i] = Math.sqrt(s);
+                } else {
+                    L[i][j] = s / L[j][j];
+                }
+            }
+        }
+        // alpha = L^T \ (L \ y)
+        double[] a = y.clone();
+        for (int i = 0; i < size; i++) {
+            double s = a[i];
+            for (int k = 0; k < i; k++) s -= L[i][k] * a[k];
+            a[i] = s / L[i][i];
+        }
+        double logDet = 0, dataFit = 0;
+        for (int i = 0; i < size; i++) { logDet += Math.log(L[i][i]); dataFit += a[i] * a[i]; }
+        for (int i = size - 1; i >= 0; i--) {
+            double s = a[i];
+            for (int k = i + 1; k < size; k++) s -= L[k][i] * a[k];
+            a[i] = s / L[i][i];
+        }
+        lengthScale = l;
+        nugget = n;
+        chol = L;
+        alpha = a;
+        return -0.5 * dataFit - logDet - 0.5 * size * Math.log(2 * Math.PI);
+    }
+
+    private static double kernel(double[] a, double[] b, double l) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) sum += (a[i] - b[i]) * (a[i] - b[i]);
+        double r = SQRT5 * Math.sqrt(sum) / l;
+        return (1 + r + r * r / 3) * Math.exp(-r);
+    }
+}
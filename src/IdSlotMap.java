@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * long 键 -> int 槽位 的开放寻址哈希表（线性探测，删除时回移，不留墓碑）。
+ * get / put / remove 均为均摊 O(1)，且不产生任何装箱对象或临时探测对象。
+ * 槽位值必须为非负数，-1 表示 "不存在"。
+ */
+class IdSlotMap {
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public IdSlotMap() { this(16); }
+
+    public IdSlotMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    public int size() { return size; }
+
+    public int get(long key) {
+        for (int i = indexFor(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) return MISSING;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    public void put(long key, int value) {
+        for (int i = indexFor(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > values.length) rehash(values.length << 1);
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    public int remove(long key) {
+        int i = indexFor(key);
+        while (true) {
+            if (values[i] == MISSING) return MISSING;
+            if (keys[i] == key) break;
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        values[i] = MISSING;
+        size--;
+        // 回移后续探测链上的元素，保证查找不会在空位处提前终止
+        for (int j = (i + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int home = indexFor(keys[j]);
+            boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = MISSING;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private int indexFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 岛屿模型遗传算法：种群分成若干个岛，各岛独立地按 GA 的方式演化（锦标赛选择、单点交叉、高斯变异，以上一代得分的中位数为提前终止阈值），
+ * 每隔若干代把本岛最好的几个个体发往环上下一个岛的迁移队列，各岛在繁殖前取出迁入者，替换本岛得分更低的个体。
+ * 迁移队列是无锁的 ConcurrentLinkedQueue，发送方从不等待接收方，接收方也不等待迁入者。
+ *
+ * 异步模式 (默认)：每个岛有自己的线程和 DataManager (DataManager.fork)，在本线程上串行评估自己的个体，
+ * 没有全局的代屏障，一个岛不会等待其他岛上较慢的评估；评估预算对所有岛合计。
+ * 同步模式 (-Dga.island.async=false)：调度器按岛轮流 ask/tell，所有评估都在 baseDM 上进行，结果可以复现。
+ * 默认 4 个岛 × 10 个个体 × 50 代 = 2000 次评估，与 GA 相同，两者的得分和吞吐量 (个候选解/秒) 可以直接比较。
+ *
+ * 通过系统属性开启和配置：-Dga.island=true (Main 在 GA 之后运行本算法), -Dga.island.count=4, -Dga.island.size=10,
+ * -Dga.island.generations=50, -Dga.island.interval=5 (迁移间隔的代数), -Dga.island.migrants=2, -Dga.island.async=true
+ */
+public class IslandGA extends AbstractOptimizer implements AsynchronousOptimizer {
+    static final boolean ENABLED = Boolean.getBoolean("ga.island");
+    private static final int ISLANDS = Math.max(1, Integer.getInteger("ga.island.count", 4));
+    private static final int ISLAND_SIZE = Math.max(2, Integer.getInteger("ga.island.size", 10));
+    private static final int GENERATIONS = Math.max(1, Integer.getInteger("ga.island.generations", 50));
+    private static final int MIGRATION_INTERVAL = Math.max(1, Integer.getInteger("ga.island.interval", 5));
+    private static final int MIGRANTS = Math.max(0, Integer.getInteger("ga.island.migrants", 2));
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("ga.island.async", "true"));
+
+    /**
+     * 一个岛：独立的子种群、随机数和迁入队列。ask/tell 只在一个线程上调用。
+     */
+    private final class Island {
+        final Random random;
+        final DataManager dm;
+        final ConcurrentLinkedQueue<EliteArchive.EliteSolution> inbox = new ConcurrentLinkedQueue<>();
+        Island next;
+        double[][] population = new double[ISLAND_SIZE][DIMENSIONS];
+        double[] thresholds = null;
+        int generation = 0;
+
+        Island(long seed, DataManager dm) {
+            this.random = new Random(seed);
+            this.dm = dm;
+            for (int i = 0; i < ISLAND_SIZE; i++) {
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    population[i][j] = random.nextDouble();
+                }
+            }
+        }
+
+        Request ask() {
+            return generation == GENERATIONS ? null : Request.batch(population, thresholds);
+        }
+
+        void tell(ParallelEvaluator.Result[] results) {
+            double[] scores = new double[ISLAND_SIZE];
+            boolean[] exact = new boolean[ISLAND_SIZE];
+            for (int i = 0; i < ISLAND_SIZE; i++) {
+                scores[i] = results[i].score;
+                exact[i] = results[i].isExact();
+                record(population[i], results[i]);
+            }
+            generation++;
+            if (next != this && MIGRANTS > 0 && generation % MIGRATION_INTERVAL == 0) emigrate(scores, exact);
+            immigrate(scores);
+
+            double[] sorted = scores.clone();
+            Arrays.sort(sorted);
+            thresholds = new double[ISLAND_SIZE];
+            Arrays.fill(thresholds, sorted[ISLAND_SIZE / 2]);
+
+            double[][] newPopulation = new double[ISLAND_SIZE][];
+            for (int i = 0; i < ISLAND_SIZE; i++) {
+                double[] child = GA.crossover(GA.tournamentSelection(population, scores, random), GA.tournamentSelection(population, scores, random), random);
+                GA.mutate(child, random);
+                newPopulation[i] = child;
+            }
+            population = newPopulation;
+            generationCompleted();
+        }
+
+        /** 把本代完整评估过的前 MIGRANTS 名放入下一个岛的队列。 */
+        private void emigrate(double[] scores, boolean[] exact) {
+            Integer[] order = new Integer[ISLAND_SIZE];
+            for (int i = 0; i < ISLAND_SIZE; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            for (int i = 0, sent = 0; i < ISLAND_SIZE && sent < MIGRANTS; i++) {
+                if (!exact[order[i]]) continue;
+                next.inbox.offer(new EliteArchive.EliteSolution(population[order[i]].clone(), scores[order[i]]));
+                sent++;
+            }
+        }
+
+        /** 取出所有迁入者，各自替换本岛当前得分最低的个体（迁入者更好时）。 */
+        private void immigrate(double[] scores) {
+            EliteArchive.EliteSolution immigrant;
+            while ((immigrant = inbox.poll()) != null) {
+                int worst = 0;
+                for (int i = 1; i < ISLAND_SIZE; i++) if (scores[i] < scores[worst]) worst = i;
+                if (immigrant.score > scores[worst]) {
+                    population[worst] = immigrant.solution.clone();
+                    scores[worst] = immigrant.score;
+                    migrated.incrementAndGet();
+                }
+            }
+        }
+
+    }
+
+    private final Island[] islands;
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    // --- 以下字段由各岛线程在 synchronized (this) 中更新 ---
+    private int completedGenerations = 0;   // 所有岛合计完成的代数
+    private long startNanos, evaluationsToBest = 0, nanosToBest = 0;
+    // --- 同步模式：下一个轮到的岛和正在评估的岛 ---
+    private int nextIsland = 0;
+    private Island asked;
+
+    public IslandGA(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
+        this.islands = new Island[ISLANDS];
+        for (int i = 0; i < ISLANDS; i++) {
+            islands[i] = new Island(random.nextLong(), ASYNC ? baseDM.fork() : baseDM);
+        }
+        for (int i = 0; i < ISLANDS; i++) {
+            islands[i].next = islands[(i + 1) % ISLANDS];
+        }
+    }
+
+    @Override
+    public String name() { return "Island GA"; }
+
+    @Override
+    public void begin(PrintStream out, double baselineScore) {
+        super.begin(out, baselineScore);
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public boolean isAsynchronous() { return ASYNC; }
+
+    @Override
+    public Request ask() {
+        for (int tried = 0; tried < islands.length; tried++) {
+            Island island = islands[nextIsland];
+            nextIsland = (nextIsland + 1) % islands.length;
+            Request request = island.ask();
+            if (request != null) {
+                asked = island;
+                return request;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        evaluations.addAndGet(results.length);
+        asked.tell(results);
+    }
+
+    /**
+     * 每个岛一个线程，各自循环 ask、在本岛的 DataManager 上串行评估、tell，直到本岛跑完所有代或合计预算用尽。
+     */
+    @Override
+    public String drive(OptimizerScheduler.Budget budget, long deadline) {
+        ParallelEvaluator[] evaluators = new ParallelEvaluator[islands.length];
+        AtomicBoolean exhausted = new AtomicBoolean(false);
+        ExecutorService threads = Executors.newFixedThreadPool(islands.length);
+        List<Future<?>> futures = new ArrayList<>(islands.length);
+        try {
+            for (int i = 0; i < islands.length; i++) {
+                final Island island = islands[i];
+                final ParallelEvaluator evaluator = evaluators[i] = new ParallelEvaluator(testData, island.dm, null, 1);
+                futures.add(threads.submit(() -> {
+                    Request request;
+                    while ((request = island.ask()) != null) {
+                        if (budget.exhausted(evaluations.get(), deadline)) {
+                            if (exhausted.compareAndSet(false, true)) {
+                                synchronized (this) { log(String.format("--- 评估预算用尽 (已评估 %d 个候选解), 提前结束 ---", evaluations.get())); }
+                            }
+                            break;
+                        }
+                        ParallelEvaluator.Result[] results = evaluator.evaluateAll(request.candidates, request.thresholds);
+                        evaluations.addAndGet(results.length);
+                        island.tell(results);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("岛屿模型 GA 被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("岛屿模型 GA 运行失败", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+
+        long tasks = 0;
+        for (ParallelEvaluator evaluator : evaluators) tasks += evaluator.simulatedTasks();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("评估预算 (岛屿模型, 异步): 提交 %d 个候选解, 仿真 %d 个任务 (折合 %.1f 次完整评估), 吞吐量 %.1f 个候选解/秒, 最佳解在第 %d 个候选解时找到 (%.1f 秒)",
+                evaluations.get(), tasks, (double) tasks / Math.max(1, testData.length()), evaluations.get() / Math.max(seconds, 1e-9),
+                evaluationsToBest, nanosToBest / 1e9);
+    }
+
+    private synchronized void record(double[] solution, ParallelEvaluator.Result result) {
+        if (offer(solution, result)) {
+            evaluationsToBest = evaluations.get();
+            nanosToBest = System.nanoTime() - startNanos;
+        }
+    }
+
+    /** 所有岛合计每完成 ISLANDS 代打印一行进度，"Gen N" 表示平均每个岛完成了 N 代。 */
+    private synchronized void generationCompleted() {
+        if (++completedGenerations % islands.length == 0) {
+            progress(String.format("Gen %2d", completedGenerations / islands.length));
+        }
+    }
+
+    @Override
+    protected void printSummary(PrintStream out) {
+        out.printf("岛屿模型: %d 个岛 × %d 个个体 (%s), 每 %d 代向下一个岛迁移 %d 个精英, 共接纳 %d 个迁入者\n",
+                islands.length, ISLAND_SIZE, ASYNC ? "异步" : "同步", MIGRATION_INTERVAL, MIGRANTS, migrated.get());
+    }
+}
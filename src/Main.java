@@ -6,56 +6,52 @@ import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Main {
 
     /**
-     * 从CSV文件加载数据项。
-     * @param filePath CSV文件路径。
-     * @param maxLines 要读取的最大行数（0或负数表示读取全部）。
-     * @return DataItem数组。
+     * 加载NASA轨迹。文件在整个JVM中只内存映射并解析一次，所有实验共享，各数据集取其前缀视图。
+     * @param filePath CSV文件路径，或由 TraceFile 转换得到的 .trc 二进制轨迹。
+     * @return 完整轨迹；读取或解析失败时返回空轨迹。
      */
-    private static DataItem[] loadDataFromFile(String filePath, int maxLines) {
-        List<DataItem> dataList = new ArrayList<>();
-        String line;
-        // 使用try-with-resources确保BufferedReader被正确关闭
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            br.readLine(); // 跳过表头
-            int lineCount = 0;
-            while ((line = br.readLine()) != null && (maxLines <= 0 || lineCount < maxLines)) {
-                String[] values = line.split(",");
-                int id = Integer.parseInt(values[0].replace("\"", ""));
-                int size = Integer.parseInt(values[1].replace("\"", ""));
-                long arrivalTime = (long) Double.parseDouble(values[2].replace("\"", ""));
-                long deadline = (long) Double.parseDouble(values[3].replace("\"", ""));
-                String type = "nasa_request";
-                dataList.add(new DataItem(id, size, type, arrivalTime, deadline));
-                lineCount++;
-            }
+    private static Trace loadNasaTrace(String filePath) {
+        try {
+            if (filePath.endsWith(TraceFile.EXTENSION)) return TraceFile.load(filePath);
+            return CsvTraceLoader.load(filePath, "nasa_request");
         } catch (IOException | NumberFormatException e) {
             System.err.println("错误：读取或解析 " + filePath + " 失败！");
             e.printStackTrace();
+            return Trace.of(new DataItem[0]);
         }
-        return dataList.toArray(new DataItem[0]);
     }
 
     /**
      * 线程安全版本：在单个数据集上运行所有算法，并将结果打印到指定的PrintStream。
      */
-    public static void runExperimentOnDataset(String datasetName, DataItem[] dataSet, DataManager dm, long seed, PrintStream out) {
+    public static void runExperimentOnDataset(String datasetName, Trace dataSet, DataManager dm, long seed, PrintStream out) {
         out.printf("\n\n=============== 正在对 [%s] 数据集运行完整测试 ===============\n", datasetName);
-        if (dataSet == null || dataSet.length == 0) {
+        if (dataSet == null || dataSet.length() == 0) {
             out.println("错误：数据集为空，跳过测试。");
             return;
         }
 
-        // 重置数据管理器并加载新数据
+        // 重置数据管理器（数据在每次评估开始时由 DataTest.score 装入），并用实验种子固定所有评估的信道噪声
         dm.reset();
-        for (DataItem item : dataSet) {
-            dm.registerDataItem(item);
-            dm.addDataToRemote(item, item.arrivalTime);
+        dm.setSeed(seed);
+        if (dm.isCommonRandomNumbers() || dm.getReplications() > 1 || dm.isRacing() || MultiFidelityEvaluator.ENABLED) {
+            out.printf("评估模式: 公共随机数=%s, 每次评估重复 %d 次, 提前终止=%s, 多保真=%s\n", dm.isCommonRandomNumbers() ? "开启" : "关闭",
+                    dm.getReplications(), dm.isRacing() ? "开启" : "关闭", MultiFidelityEvaluator.ENABLED ? "开启" : "关闭");
+        }
+        if (!dm.local.getEvictionPolicyName().equals(EvictionPolicy.SCORE) || !dm.cloud.getEvictionPolicyName().equals(EvictionPolicy.SCORE)
+                || dm.local.hasAdmissionFilter() || dm.cloud.hasAdmissionFilter()) {
+            out.printf("淘汰策略: 本地缓存=%s%s, 边缘云=%s%s\n", dm.local.getEvictionPolicyName(), dm.local.hasAdmissionFilter() ? "+准入过滤" : "",
+                    dm.cloud.getEvictionPolicyName(), dm.cloud.hasAdmissionFilter() ? "+准入过滤" : "");
+        }
+        if (dm.isExclusive()) out.println("层级结构: 互斥 (本地与边缘云不重复缓存同一对象)");
+        if (dm.isCoalescing()) out.println("未命中合并 (MSHR): 开启");
+        OptimizerScheduler.Budget budget = OptimizerScheduler.Budget.fromSystemProperties();
+        if (OptimizerScheduler.CONCURRENT || !budget.isUnlimited()) {
+            out.printf("调度: %s运行, 评估预算: %s\n", OptimizerScheduler.CONCURRENT ? "并发" : "依次", budget);
         }
 
         Map<String, Double> results = new LinkedHashMap<>();
@@ -66,25 +62,28 @@ public class Main {
         baselineScore = rs.run(out);
         results.put("Random Search (Baseline)", baselineScore);
 
-        out.println("\n--- 2. Running Basic Simulated Annealing (SA) ---");
-        SA sa = new SA(dataSet, dm, seed);
-        results.put("Simulated Annealing (SA)", sa.run(out, baselineScore));
-
-        out.println("\n--- 3. Running Particle Swarm Optimization (PSO) ---");
-        PSO pso = new PSO(dataSet, dm, seed);
-        results.put("Particle Swarm (PSO)", pso.run(out, baselineScore));
-
-        out.println("\n--- 4. Running Genetic Algorithm (GA) ---");
-        GA ga = new GA(dataSet, dm, seed);
-        results.put("Genetic Algorithm (GA)", ga.run(out, baselineScore));
-
-        out.println("\n--- 5. Running Ant Colony Optimization (ACO) ---");
-        ACO aco = new ACO(dataSet, dm, seed);
-        results.put("Ant Colony (ACO)", aco.run(out, baselineScore));
-
-        out.println("\n--- 6. Running Advanced Simulated Annealing (UpdateSA) ---");
-        UpdateSA updateSA = new UpdateSA(dataSet, dm, seed);
-        results.put("Advanced SA (UpdateSA)", updateSA.run(out, baselineScore));
+        // 其余算法交给调度器：默认依次运行，-Dsched.concurrent=true 时并发运行，各自使用独立的 DataManager
+        boolean concurrent = OptimizerScheduler.CONCURRENT;
+        OptimizerScheduler scheduler = new OptimizerScheduler(budget);
+        scheduler.add("\n--- 2. Running Basic Simulated Annealing (SA) ---", "Simulated Annealing (SA)",
+                new SA(dataSet, concurrent ? dm.fork() : dm, seed));
+        scheduler.add("\n--- 3. Running Particle Swarm Optimization (PSO) ---", "Particle Swarm (PSO)",
+                new PSO(dataSet, concurrent ? dm.fork() : dm, seed));
+        scheduler.add("\n--- 4. Running Genetic Algorithm (GA) ---", "Genetic Algorithm (GA)",
+                new GA(dataSet, concurrent ? dm.fork() : dm, seed));
+        if (IslandGA.ENABLED) {
+            scheduler.add("\n--- 4b. Running Island-Model Genetic Algorithm (Island GA) ---", "Island-Model GA",
+                    new IslandGA(dataSet, concurrent ? dm.fork() : dm, seed));
+        }
+        scheduler.add("\n--- 5. Running Ant Colony Optimization (ACO) ---", "Ant Colony (ACO)",
+                new ACO(dataSet, concurrent ? dm.fork() : dm, seed));
+        scheduler.add("\n--- 6. Running Advanced Simulated Annealing (UpdateSA) ---", "Advanced SA (UpdateSA)",
+                new UpdateSA(dataSet, concurrent ? dm.fork() : dm, seed));
+        scheduler.add("\n--- 7. Running Surrogate-Assisted Optimization (GP-EI) ---", "Surrogate (GP-EI)",
+                new SurrogateOptimizer(dataSet, concurrent ? dm.fork() : dm, seed));
+        scheduler.add("\n--- 8. Running Covariance Matrix Adaptation Evolution Strategy (CMA-ES) ---", "CMA-ES",
+                new CMAES(dataSet, concurrent ? dm.fork() : dm, seed));
+        results.putAll(scheduler.runAll(out, baselineScore, concurrent));
 
         // 打印总结报告
         out.println("\n==========================================================");
@@ -104,6 +103,8 @@ public class Main {
             }
         }
         out.println("==========================================================");
+        out.println(ScoreCache.shared() + " (所有实验共享的累计值)");
+        if (DataTest.hasRacingStats()) out.println(DataTest.racingSummary() + " (所有实验共享的累计值)");
     }
 
     /**
@@ -124,13 +125,18 @@ public class Main {
             // --- 定义仿真环境参数 ---
             long localCapacity = 3000L * 1024L;  // 3 MB
             long edgeCapacity = 5000L * 1024L;   // 5 MB
-            DataManager dataManager = new DataManager(localCapacity, edgeCapacity);
+            // 各层的淘汰策略：-Dcache.local.policy / -Dcache.cloud.policy (score, lru, lfu, gdsf, arc, wtinylfu)，默认 score
+            DataManager dataManager = new DataManager(localCapacity, edgeCapacity, EvictionPolicy.LOCAL, EvictionPolicy.CLOUD);
+            // 准入过滤器：-Dcache.local.admission=true / -Dcache.cloud.admission=true，默认关闭；
+            // 层级结构：-Dcache.hierarchy=inclusive (默认) / exclusive；未命中合并：-Dcache.coalescing=true
+            dataManager.setAdmissionFilters(AdmissionFilter.LOCAL, AdmissionFilter.CLOUD);
 
             // --- 运行真实数据实验 ---
             String nasaDataPath = "dataset/processed_nasa_log.csv";
-            runExperimentOnDataset("10k Tasks", loadDataFromFile(nasaDataPath, 10000), dataManager, randomseed, out);
-            runExperimentOnDataset("15k Tasks", loadDataFromFile(nasaDataPath, 15000), dataManager, randomseed, out);
-            runExperimentOnDataset("20k Tasks", loadDataFromFile(nasaDataPath, 20000), dataManager, randomseed, out);
+            Trace nasaTrace = loadNasaTrace(nasaDataPath);
+            runExperimentOnDataset("10k Tasks", nasaTrace.prefix(10000), dataManager, randomseed, out);
+            runExperimentOnDataset("15k Tasks", nasaTrace.prefix(15000), dataManager, randomseed, out);
+            runExperimentOnDataset("20k Tasks", nasaTrace.prefix(20000), dataManager, randomseed, out);
 
             // --- 运行合成数据实验 ---
             int syntheticRequests = 15000;
@@ -140,7 +146,7 @@ public class Main {
             DataGenerator generator = new DataGenerator(syntheticRequests, syntheticUniqueIds, randomseed);
 
             // 【核心】调用唯一的方法，并使用统一的名称
-            runExperimentOnDataset("Zipf Tasks", generator.generateData(), dataManager, randomseed, out);
+            runExperimentOnDataset("Zipf Tasks", Trace.of(generator.generateData()), dataManager, randomseed, out);
 
             out.println("\n\n=== Run #" + runNumber + " Finished. ===");
             out.println("实验 #" + runNumber + " 结束时间: " + new Date());
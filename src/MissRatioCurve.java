@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 单遍扫描的缺失率曲线 (miss ratio curve) 分析：不运行任何优化器，直接从轨迹算出 "命中率 - 容量" 曲线，用来选择 LocalCache/CloudCache 的容量。
+ *
+ * 按 Mattson 栈距离计算：某次请求的字节栈距离 = 该对象自己的大小 + 上次访问它之后访问过的不同对象的总大小，
+ * 容量为 C 的 LRU 缓存命中这次请求当且仅当栈距离 ≤ C，所以一遍扫描得到的栈距离直方图同时给出了所有容量下的命中率。
+ * "上次访问之后的不同对象" 用按访问序号索引的 Fenwick 树维护：每个对象只在它最近一次访问的位置上记录自己的大小，
+ * 每个请求 O(log n)。放不进缓存的大对象栈距离必然超过容量，自动记为未命中；首次访问为冷缺失。
+ *
+ * 大轨迹用 SHARDS 空间采样：只处理对象 id 的哈希值落在采样率 R 以内的请求（同一对象的请求要么全部处理、要么全部跳过），
+ * 其他对象的大小之和按 1/R 放大，内存和时间都约为原来的 R 倍。
+ *
+ * 两层的曲线都来自同一个直方图：仿真中每次本地未命中都会把对象装入本地 (远端命中时也装入边缘云)，本地淘汰再下放到边缘云，
+ * 近似为包含式 (inclusive) 的两级 LRU，本地容量 L、边缘云容量 E 时，边缘云命中的正是栈距离落在 (L, E] 的请求。
+ * 仿真使用的是按权重打分的淘汰策略而不是 LRU，因此曲线用于估计容量的量级和拐点，具体权重下的命中率仍以仿真为准。
+ *
+ * 用法: java MissRatioCurve <轨迹.csv|轨迹.trc|zipf> [行数 (0 为全部)] [采样率] [本地容量KB] [步长KB] [最大容量KB]
+ * 默认: 全部行, 采样率 1 (精确), 本地容量 3000 KB (与 Main 相同), 步长 500 KB, 最大容量 20000 KB。
+ * zipf 表示用 Main 中合成实验的参数 (15000 个请求, 1000 个唯一 id) 生成轨迹，行数参数此时为请求数。
+ */
+public final class MissRatioCurve {
+    private static final int GRANULARITY = 1024;    // 直方图的桶宽 (字节)，容量按 KB 查询时是精确的
+    private static final long HASH_SPACE = 1L << 24;
+
+    private final double samplingRate;
+    private long[] hitBytes = new long[16];         // 按 ceil(栈距离 / GRANULARITY) 分桶的请求字节数
+    private long[] hitRequests = new long[16];
+    private long totalBytes = 0, totalRequests = 0;
+    private long coldBytes = 0, coldRequests = 0;
+    private long sampledRequests = 0;
+    private int sampledObjects = 0;
+    private long[] cumulativeBytes, cumulativeRequests;
+
+    private MissRatioCurve(double samplingRate) { this.samplingRate = samplingRate; }
+
+    /**
+     * 对整条轨迹做一遍栈距离分析。
+     * @param samplingRate SHARDS 采样率 (0, 1]，1 表示处理每个请求。
+     */
+    public static MissRatioCurve analyze(Trace trace, double samplingRate) {
+        if (!(samplingRate > 0 && samplingRate <= 1)) throw new IllegalArgumentException("采样率必须在 (0, 1] 之间: " + samplingRate);
+        MissRatioCurve curve = new MissRatioCurve(samplingRate);
+        long threshold = Math.round(samplingRate * HASH_SPACE);
+        int[] lastAccess = new int[trace.objectCount];  // 对象最近一次被采样访问的序号，-1 表示还没有访问过
+        Arrays.fill(lastAccess, -1);
+        // Fenwick 树，下标为采样到的请求序号 + 1；按预期的采样数分配，不够时倍增
+        long[] tree = new long[(int) Math.min(trace.length, (long) (samplingRate * trace.length * 1.2) + 1024) + 1];
+        int sampled = 0;
+        long allBytes = 0;
+        for (int row = 0; row < trace.length; row++) {
+            int object = trace.objectOf[row];
+            int size = trace.objectSizes[object];
+            allBytes += size;
+            if (samplingRate < 1 && (hash(trace.objectIds[object]) & (HASH_SPACE - 1)) >= threshold) continue;
+            int last = lastAccess[object];
+            if (last < 0) {
+                curve.sampledObjects++;
+                curve.recordCold(size);
+            } else {
+                long others = prefixSum(tree, sampled) - prefixSum(tree, last + 1);
+                curve.record(size + (long) Math.ceil(others / samplingRate), size);
+                add(tree, last, -size);
+            }
+            if (sampled + 1 == tree.length) tree = grow(tree);
+            add(tree, sampled, size);
+            lastAccess[object] = sampled++;
+        }
+        if (samplingRate < 1) curve.adjust(Math.round(samplingRate * trace.length), Math.round(samplingRate * allBytes));
+        curve.sampledRequests = sampled;
+        curve.accumulate();
+        return curve;
+    }
+
+    private void record(long distance, int size) {
+        int bucket = (int) Math.min(Integer.MAX_VALUE - 1, (distance + GRANULARITY - 1) / GRANULARITY);
+        if (bucket >= hitBytes.length) {
+            int length = Math.max(bucket + 1, hitBytes.length * 2);
+            hitBytes = Arrays.copyOf(hitBytes, length);
+            hitRequests = Arrays.copyOf(hitRequests, length);
+        }
+        hitBytes[bucket] += size;
+        hitRequests[bucket]++;
+        totalBytes += size;
+        totalRequests++;
+    }
+
+    private void recordCold(int size) {
+        coldBytes += size;
+        coldRequests++;
+        totalBytes += size;
+        totalRequests++;
+    }
+
+    /**
+     * SHARDS 的修正 (SHARDS-adj)：采样到的请求数 (字节数) 与期望值 R·N 的差额计入栈距离最小的桶，总量改为期望值。
+     * 偏斜的负载中少数热点对象是否被采中会使采样请求数大幅偏离期望，不修正时整条曲线会整体偏高或偏低。
+     */
+    private void adjust(long expectedRequests, long expectedBytes) {
+        hitRequests[0] += expectedRequests - totalRequests;
+        hitBytes[0] += expectedBytes - totalBytes;
+        totalRequests = expectedRequests;
+        totalBytes = expectedBytes;
+    }
+
+    private void accumulate() {
+        cumulativeBytes = new long[hitBytes.length];
+        cumulativeRequests = new long[hitRequests.length];
+        long bytes = 0, requests = 0;
+        for (int i = 0; i < hitBytes.length; i++) {
+            cumulativeBytes[i] = bytes += hitBytes[i];
+            cumulativeRequests[i] = requests += hitRequests[i];
+        }
+    }
+
+    /** 容量为 capacity 字节的 LRU 缓存的字节命中率 (命中字节数 / 请求字节数)。 */
+    public double byteHitRatio(long capacity) { return ratio(upTo(cumulativeBytes, capacity), totalBytes); }
+
+    /** 容量为 capacity 字节的 LRU 缓存的请求命中率。 */
+    public double requestHitRatio(long capacity) { return ratio(upTo(cumulativeRequests, capacity), totalRequests); }
+
+    /** 本地容量 localCapacity、边缘云容量 edgeCapacity 的包含式两级缓存中，边缘云命中的字节占比。 */
+    public double edgeByteHitRatio(long localCapacity, long edgeCapacity) { return Math.max(0, byteHitRatio(edgeCapacity) - byteHitRatio(localCapacity)); }
+
+    /** 边缘云命中的请求占比。 */
+    public double edgeRequestHitRatio(long localCapacity, long edgeCapacity) { return Math.max(0, requestHitRatio(edgeCapacity) - requestHitRatio(localCapacity)); }
+
+    /** 冷缺失 (首次访问) 的字节占比，任何容量都无法命中。 */
+    public double coldByteRatio() { return ratio(coldBytes, totalBytes); }
+
+    /** 采样后（修正前）实际处理的请求数。 */
+    public long sampledRequests() { return sampledRequests; }
+    /** 被采样的对象数。对象太少 (几百个以下) 时，热点对象是否被采中决定了整条曲线，采样结果不可信。 */
+    public int sampledObjects() { return sampledObjects; }
+    public double getSamplingRate() { return samplingRate; }
+
+    // 采样修正后的计数可能略微越界，比值限制在 [0, 1]
+    private static double ratio(long part, long total) { return total <= 0 ? 0 : Math.max(0, Math.min(1, (double) part / total)); }
+
+    private static long upTo(long[] cumulative, long capacity) {
+        if (capacity <= 0) return 0;
+        return cumulative[(int) Math.min(cumulative.length - 1, capacity / GRANULARITY)];
+    }
+
+    // --- Fenwick 树 (下标从 0 开始的接口，内部从 1 开始) ---
+    private static void add(long[] tree, int index, long delta) { for (int i = index + 1; i < tree.length; i += i & -i) tree[i] += delta; }
+    private static long prefixSum(long[] tree, int count) { long sum = 0; for (int i = count; i > 0; i -= i & -i) sum += tree[i]; return sum; }
+
+    /** 容量倍增：新增的位置都是 0，新节点 i 覆盖的区间和可以直接由旧树的前缀和算出。 */
+    private static long[] grow(long[] tree) {
+        int old = tree.length - 1;
+        long[] grown = Arrays.copyOf(tree, old * 2 + 1);
+        for (int i = old + 1; i < grown.length; i++) {
+            grown[i] = prefixSum(tree, Math.min(i, old)) - prefixSum(tree, Math.min(i - (i & -i), old));
+        }
+        return grown;
+    }
+
+    // SplitMix64 的混合函数：同一个 id 在每次运行中都落在同一侧，采样集合可复现
+    private static long hash(long id) {
+        long z = id + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("用法: java MissRatioCurve <轨迹.csv|轨迹.trc|zipf> [行数 (0 为全部)] [采样率] [本地容量KB] [步长KB] [最大容量KB]");
+            return;
+        }
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        long localKB = args.length > 3 ? Long.parseLong(args[3]) : 3000;
+        long stepKB = args.length > 4 ? Long.parseLong(args[4]) : 500;
+        long maxKB = args.length > 5 ? Long.parseLong(args[5]) : 20000;
+
+        long t0 = System.nanoTime();
+        Trace trace;
+        if (args[0].equals("zipf")) {
+            trace = Trace.of(new DataGenerator(rows > 0 ? rows : 15000, 1000, 1000).generateData());
+        } else {
+            trace = args[0].endsWith(TraceFile.EXTENSION) ? TraceFile.load(args[0]) : CsvTraceLoader.load(args[0], "nasa_request");
+            if (rows > 0) trace = trace.prefix(rows);
+        }
+        long t1 = System.nanoTime();
+        MissRatioCurve curve = analyze(trace, rate);
+        long t2 = System.nanoTime();
+
+        System.out.printf("轨迹: %s, %d 行, %d 个对象, 采样率 %.4f (处理 %d 个请求), 装入 %.1f ms, 分析 %.1f ms\n",
+                args[0], trace.length(), trace.objectCount(), rate, curve.sampledRequests(), (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        if (rate < 1 && curve.sampledObjects() < 1000) {
+            System.out.printf("警告: 只采样到 %d 个对象，曲线由少数热点对象是否被采中决定，误差可能很大；对象较少的轨迹请用采样率 1\n", curve.sampledObjects());
+        }
+        System.out.printf("冷缺失字节占比: %.3f (任何容量都无法命中)\n", curve.coldByteRatio());
+        System.out.printf("%-10s | %-18s | %-18s | %-28s\n", "容量 KB", "本地字节命中率", "本地请求命中率", "边缘云字节命中率 (本地 " + localKB + " KB)");
+        System.out.println("----------------------------------------------------------------------------------");
+        for (long kb = stepKB; kb <= maxKB; kb += stepKB) {
+            long capacity = kb * 1024;
+            String edge = kb > localKB ? String.format("%.3f (两层合计 %.3f)", curve.edgeByteHitRatio(localKB * 1024, capacity), curve.byteHitRatio(capacity)) : "-";
+            System.out.printf("%-10d | %-18.3f | %-18.3f | %s\n", kb, curve.byteHitRatio(capacity), curve.requestHitRatio(capacity), edge);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * 多保真评估 (successive halving)：候选解先在轨迹的短前缀上评估，只有排名靠前的才晋级到更长的前缀，最后到完整轨迹。
+ * 前缀长度从完整轨迹开始每次除以 η，直到不足 -Deval.mf.minRows 行为止，例如 20000 行、η = 3 时为 2222 / 6666 / 20000。
+ * 各层前缀都是 Trace.prefix 的零拷贝视图，有各自的评估上下文和 ScoreCache 键。
+ *
+ * 批量评估 (evaluateAll)：每一层保留得分最高的 1/η（至少一个），其余候选解停在这一层。
+ * 停下的候选解的得分按这一层与完整轨迹得分之比（由晋级到最后的候选解标定）换算成估计值，
+ * 并且总是低于所有完整评估的得分，因此 GA 的选择、ACO 的信息素仍然能使用它们的相对排名。
+ *
+ * 单个评估 (evaluate)：SA 这类算法只关心邻居能否超过阈值。在每一层前缀上用参照解（当前解）的得分之比换算出估计值，
+ * 估计值放宽 -Deval.mf.margin 之后仍低于阈值就停止，否则进入下一层，最后一层与 ParallelEvaluator 完全相同。
+ * 相邻解之间的差异常常小于前缀估计的误差，因此每一层记录近期的淘汰率 (指数滑动平均)，
+ * 只有淘汰率足以抵消在这一层评估的代价时才筛选；否则跳过这一层，只每隔若干次试探一次以更新淘汰率。
+ *
+ * 估计值 isExact() 为 false，优化器不会把它记为最佳解。
+ * 通过系统属性开启和配置：-Deval.mf=true, -Deval.mf.eta=3, -Deval.mf.minRows=2000, -Deval.mf.margin=0.05
+ */
+public final class MultiFidelityEvaluator implements CandidateEvaluator {
+    static final boolean ENABLED = Boolean.getBoolean("eval.mf");
+    private static final int ETA = Math.max(2, Integer.getInteger("eval.mf.eta", 3));
+    private static final int MIN_ROWS = Math.max(1, Integer.getInteger("eval.mf.minRows", 2000));
+    private static final double MARGIN = Math.max(0, Double.parseDouble(System.getProperty("eval.mf.margin", "0.05")));
+    private static final double RATE_DECAY = 0.95;
+    private static final int PROBE_PERIOD = 16;
+
+    private final DataManager baseDM;
+    private final ParallelEvaluator[] rungs;        // 按前缀长度递增，最后一层是完整轨迹
+    private final DataManager[] screeningDMs;       // 单个评估在各个较短前缀上使用的 DataManager
+    private final long[] rungEvaluations;
+    private long requests = 0;
+    private final double[] eliminationRate;         // 单个评估在各层的近期淘汰率
+    private final int[] skippedScreens;
+
+    // --- 单个评估的参照解及其在各层前缀上的得分（参照解不变时不再重复评估）---
+    private double[] reference;
+    private double[] referenceScores;
+
+    public MultiFidelityEvaluator(Trace trace, DataManager baseDM) {
+        this.baseDM = baseDM;
+        int levels = 1;
+        for (int rows = trace.length() / ETA; rows >= MIN_ROWS; rows /= ETA) levels++;
+        this.rungs = new ParallelEvaluator[levels];
+        this.screeningDMs = new DataManager[levels - 1];
+        this.rungEvaluations = new long[levels];
+        this.eliminationRate = new double[levels - 1];
+        this.skippedScreens = new int[levels - 1];
+        Arrays.fill(eliminationRate, 1.0);
+        int rows = trace.length();
+        for (int k = levels - 1; k >= 0; k--, rows /= ETA) {
+            rungs[k] = new ParallelEvaluator(k == levels - 1 ? trace : trace.prefix(rows), baseDM);
+            if (k < levels - 1) screeningDMs[k] = baseDM.newWorker();
+        }
+    }
+
+    @Override
+    public ParallelEvaluator.Result[] evaluateAll(double[][] candidates, double[] thresholds) {
+        int n = candidates.length;
+        int last = rungs.length - 1;
+        requests += n;
+        ParallelEvaluator.Result[] results = new ParallelEvaluator.Result[n];
+        ParallelEvaluator.Result[] partial = new ParallelEvaluator.Result[n];
+        int[] stoppedAt = new int[n];
+        Arrays.fill(stoppedAt, -1);
+        double[][] rungScores = new double[rungs.length][n];
+
+        Integer[] alive = new Integer[n];
+        for (int i = 0; i < n; i++) alive[i] = i;
+        int aliveCount = n;
+        for (int k = 0; k <= last; k++) {
+            if (k < last && aliveCount <= 1) continue; // 只剩一个候选解时不必再筛选
+            double[][] subset = new double[aliveCount][];
+            double[] limits = k == last && thresholds != null ? new double[aliveCount] : null;
+            for (int i = 0; i < aliveCount; i++) {
+                subset[i] = candidates[alive[i]];
+                if (limits != null) limits[i] = thresholds[alive[i]];
+            }
+            ParallelEvaluator.Result[] r = rungs[k].evaluateAll(subset, limits);
+            rungEvaluations[k] += aliveCount;
+            for (int i = 0; i < aliveCount; i++) {
+                rungScores[k][alive[i]] = r[i].score;
+                if (k == last) results[alive[i]] = r[i]; else partial[alive[i]] = r[i];
+            }
+            if (k == last) break;
+
+            // 按本层得分降序保留前 1/η，同分时保持原顺序
+            final double[] scores = rungScores[k];
+            Arrays.sort(alive, 0, aliveCount, (a, b) -> Double.compare(scores[b], scores[a]));
+            int keep = Math.max(1, (aliveCount + ETA - 1) / ETA);
+            for (int i = keep; i < aliveCount; i++) stoppedAt[alive[i]] = k;
+            aliveCount = keep;
+        }
+
+        // 用晋级到完整轨迹的候选解标定各层得分与完整得分之比，优先使用没有被提前终止的结果
+        boolean anyExact = false;
+        for (int i = 0; i < aliveCount; i++) anyExact |= results[alive[i]].isExact();
+        double lowestFinal = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < aliveCount; i++) {
+            ParallelEvaluator.Result r = results[alive[i]];
+            if (r.isExact() || !anyExact) lowestFinal = Math.min(lowestFinal, r.score);
+        }
+        for (int j = 0; j < n; j++) {
+            int k = stoppedAt[j];
+            if (k < 0) continue;
+            double full = 0, low = 0;
+            for (int i = 0; i < aliveCount; i++) {
+                ParallelEvaluator.Result r = results[alive[i]];
+                if (r.isExact() || !anyExact) { full += r.score; low += rungScores[k][alive[i]]; }
+            }
+            double estimate = low > 0 ? rungScores[k][j] * full / low : rungScores[k][j];
+            results[j] = new ParallelEvaluator.Result(Math.min(estimate, Math.nextDown(lowestFinal)), partial[j].stats, false, true);
+        }
+        return results;
+    }
+
+    @Override
+    public ParallelEvaluator.Result evaluate(double[] candidate, double[] reference, double referenceScore, double threshold) {
+        int last = rungs.length - 1;
+        requests++;
+        if (reference != null && threshold > Double.NEGATIVE_INFINITY) {
+            if (this.reference == null || !Arrays.equals(this.reference, reference)) {
+                this.reference = reference.clone();
+                this.referenceScores = new double[last];
+                Arrays.fill(referenceScores, Double.NaN);
+            }
+            for (int k = 0; k < last; k++) {
+                if (!worthScreening(k)) continue;
+                if (Double.isNaN(referenceScores[k])) referenceScores[k] = screen(k, reference).score;
+                ParallelEvaluator.Result r = screen(k, candidate);
+                if (referenceScores[k] <= 0) break;
+                double estimate = r.score * referenceScore / referenceScores[k];
+                boolean eliminated = estimate * (1 + MARGIN) < threshold;
+                eliminationRate[k] = RATE_DECAY * eliminationRate[k] + (1 - RATE_DECAY) * (eliminated ? 1 : 0);
+                if (eliminated) {
+                    return new ParallelEvaluator.Result(estimate, r.stats, false, true);
+                }
+            }
+        }
+        rungEvaluations[last]++;
+        return rungs[last].evaluate(candidate, null, 0, threshold);
+    }
+
+    /**
+     * 在第 k 层筛选的代价约为前缀长度占完整轨迹的比例 c，淘汰时省下约 1 - c，淘汰率 p 满足 p * (1 - c) > c 时才值得筛选。
+     */
+    private boolean worthScreening(int k) {
+        double cost = (double) rungs[k].getTrace().length() / rungs[rungs.length - 1].getTrace().length();
+        if (eliminationRate[k] * (1 - cost) > cost || ++skippedScreens[k] >= PROBE_PERIOD) {
+            skippedScreens[k] = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private ParallelEvaluator.Result screen(int k, double[] weights) {
+        DataManager dm = screeningDMs[k];
+        dm.adoptSettings(baseDM);
+        rungEvaluations[k]++;
+        double score = DataTest.score(ScoringPolicy.of(weights), rungs[k].getTrace().evaluationContext(), dm);
+        return new ParallelEvaluator.Result(score, dm.snapshotStats());
+    }
+
+    @Override
+    public String budgetSummary() {
+        int last = rungs.length - 1;
+        long tasks = rungs[last].simulatedTasks();
+        StringBuilder levels = new StringBuilder();
+        for (int k = 0; k <= last; k++) {
+            if (k < last) tasks += rungs[k].workerTasks() + screeningDMs[k].getSimulatedTasks();
+            if (k > 0) levels.append(", ");
+            levels.append(rungs[k].getTrace().length()).append(" 行: ").append(rungEvaluations[k]);
+        }
+        return String.format("评估预算 (多保真, η=%d): 提交 %d 个候选解, 各层评估次数 [%s], 仿真 %d 个任务 (折合 %.1f 次完整评估)",
+                ETA, requests, levels, tasks, (double) tasks / Math.max(1, rungs[last].getTrace().length()));
+    }
+}
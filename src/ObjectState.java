@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * 一次仿真中每个对象的可变缓存状态（访问频次、最近访问时间），按 Trace 的对象编号寻址。
+ * 由 DataManager 持有并在每次评估开始时原地重置，数组在多次评估之间复用，
+ * 因此共享的 Trace 永远不会被修改，频次也不会在评估之间累积。
+ *
+ * 同时提供缓存层需要的对象表（对象数、id、size）：批量评估时直接引用 Trace 的对象列，不做拷贝；
+ * 流式评估 (StreamingSimulation) 没有完整轨迹，对象在第一次到达时由 intern 分配编号，对象表随之增长。
+ */
+final class ObjectState {
+    int[] frequency = new int[0];
+    long[] lastAccessTime = new long[0];
+
+    // --- 对象表 ---
+    int objectCount = 0;
+    int[] objectIds = new int[0];
+    int[] objectSizes = new int[0];
+    private boolean ownsObjectTable = false;    // 对象表是否为本实例自己的数组（流式），否则引用 Trace 的对象列
+    private final IdSlotMap idToObject = new IdSlotMap();
+
+    /**
+     * 恢复为 "刚构造出 DataItem" 时的状态：频次为 0，最近访问时间为首次到达时间。
+     */
+    void reset(Trace trace) {
+        useObjectTable(trace);
+        int n = trace.objectCount;
+        if (frequency.length < n) {
+            frequency = new int[n];
+            lastAccessTime = new long[n];
+        } else {
+            Arrays.fill(frequency, 0, n, 0);
+        }
+        System.arraycopy(trace.objectFirstArrivals, 0, lastAccessTime, 0, n);
+    }
+
+    /**
+     * 恢复为 "数据集已按原顺序装入远端云" 之后的状态，即每次评估开始时的状态。
+     */
+    void reset(EvaluationContext context) {
+        useObjectTable(context.trace);
+        int n = context.trace.objectCount;
+        if (frequency.length < n) {
+            frequency = new int[n];
+            lastAccessTime = new long[n];
+        }
+        System.arraycopy(context.initialFrequency, 0, frequency, 0, n);
+        System.arraycopy(context.initialLastAccessTime, 0, lastAccessTime, 0, n);
+    }
+
+    private void useObjectTable(Trace trace) {
+        objectCount = trace.objectCount;
+        objectIds = trace.objectIds;
+        objectSizes = trace.objectSizes;
+        ownsObjectTable = false;
+    }
+
+    /**
+     * 流式评估开始时调用：清空对象表，之后的对象全部通过 intern 在到达时登记。
+     */
+    void resetStreaming() {
+        if (!ownsObjectTable) {
+            objectIds = new int[16];
+            objectSizes = new int[16];
+            ownsObjectTable = true;
+        }
+        objectCount = 0;
+        idToObject.clear();
+    }
+
+    /**
+     * 返回 id 对应的对象编号；第一次出现时分配新编号，size 取首次出现时的值（与 Trace 的规则一致），
+     * 频次为 0、最近访问时间为本次到达时间。只能在 resetStreaming 之后使用。
+     */
+    int intern(int id, int size, long arrivalTime) {
+        int object = idToObject.get(id);
+        if (object != IdSlotMap.MISSING) return object;
+        object = objectCount++;
+        if (object == objectIds.length) {
+            objectIds = Arrays.copyOf(objectIds, object * 2);
+            objectSizes = Arrays.copyOf(objectSizes, object * 2);
+        }
+        if (object >= frequency.length) {
+            frequency = Arrays.copyOf(frequency, Math.max(16, object * 2));
+            lastAccessTime = Arrays.copyOf(lastAccessTime, frequency.length);
+        }
+        idToObject.put(id, object);
+        objectIds[object] = id;
+        objectSizes[object] = size;
+        frequency[object] = 0;
+        lastAccessTime[object] = arrivalTime;
+        return object;
+    }
+
+    void updateAccess(int object, long currentTime) {
+        frequency[object]++;
+        lastAccessTime[object] = currentTime;
+    }
+}
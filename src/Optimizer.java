@@ -0,0 +1,78 @@
+import java.io.PrintStream;
+
+/**
+ * 优化算法的统一接口 (ask/tell)：算法只负责提出候选解和消化评估结果，评估本身由调用方 (OptimizerScheduler) 完成。
+ * 调用顺序固定为 begin，然后交替调用 ask 和 tell，直到 ask 返回 null 或评估预算用尽，最后调用 finish；
+ * 自己管理评估线程的优化器另外实现 AsynchronousOptimizer，由它的 drive 代替 ask/tell 循环。
+ * 每次 tell 的结果与上一次 ask 返回的 Request.candidates 一一对应；两次 ask 之间总有一次 tell。
+ *
+ * 同一个优化器只在一个线程上被驱动；不同的优化器可以各自持有 DataManager 在不同线程上并发运行。
+ */
+public interface Optimizer {
+
+    /** 算法名称，用于结束时的标题。 */
+    String name();
+
+    /** 评估使用的轨迹和 DataManager（最佳解的统计量也记录在它上面）。 */
+    Trace getTrace();
+
+    DataManager getDataManager();
+
+    /**
+     * 开始一次运行。进度和提示信息打印到 out，改进量相对 baselineScore 计算。
+     */
+    void begin(PrintStream out, double baselineScore);
+
+    /**
+     * 下一批待评估的候选解；返回 null 表示算法已经结束。
+     */
+    Request ask();
+
+    /**
+     * 上一批候选解的评估结果。
+     */
+    void tell(ParallelEvaluator.Result[] results);
+
+    /**
+     * 结束运行：打印最终结果和最佳解的统计量。budgetSummary 是评估器的预算统计，为 null 时不打印。
+     * @return 最佳得分。
+     */
+    double finish(String budgetSummary);
+
+    double getBestScore();
+
+    /**
+     * 一批待评估的候选解。
+     * 批量请求 (batch) 交给 CandidateEvaluator.evaluateAll 并行评估，thresholds 为 null 时不设阈值；
+     * 单个请求 (single) 交给 CandidateEvaluator.evaluate，reference/referenceScore 是已知得分的参照解（通常是当前解）。
+     */
+    final class Request {
+        final double[][] candidates;
+        final double[] thresholds;
+        final boolean single;
+        final double[] reference;
+        final double referenceScore;
+
+        private Request(double[][] candidates, double[] thresholds, boolean single, double[] reference, double referenceScore) {
+            this.candidates = candidates;
+            this.thresholds = thresholds;
+            this.single = single;
+            this.reference = reference;
+            this.referenceScore = referenceScore;
+        }
+
+        static Request batch(double[][] candidates, double[] thresholds) {
+            return new Request(candidates, thresholds, false, null, 0);
+        }
+
+        static Request single(double[] candidate) {
+            return single(candidate, null, 0, Double.NEGATIVE_INFINITY);
+        }
+
+        static Request single(double[] candidate, double[] reference, double referenceScore, double threshold) {
+            return new Request(new double[][]{candidate}, new double[]{threshold}, true, reference, referenceScore);
+        }
+
+        int size() { return candidates.length; }
+    }
+}
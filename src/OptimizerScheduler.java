@@ -0,0 +1,186 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 优化器调度器：在同一个数据集上驱动多个 Optimizer (ask/tell)，每个优化器循环 ask、用自己的 CandidateEvaluator 评估、tell。
+ *
+ * 依次运行时与原先 Main 中逐个调用各算法完全相同。并发运行时每个优化器有一个驱动线程，
+ * 批量评估交给 ParallelEvaluator 共享的评估线程池 (-Deval.parallelism)，单个评估在驱动线程上完成，
+ * 一次实验的耗时约等于最慢的那个算法而不是所有算法之和。并发运行的优化器必须各自持有 DataManager (DataManager.fork)，
+ * 它们的输出先写入各自的缓冲区，全部结束后按添加顺序打印，日志结构与依次运行时相同。
+ *
+ * 评估预算对每个优化器分别计算，使算法之间在相同的预算下比较：
+ * -Dsched.evaluations=N   每个优化器最多评估 N 个候选解，按整批检查，最后一批可能略微超出 (默认 0，不限)
+ * -Dsched.seconds=S       墙钟预算：并发运行时所有优化器共用同一个截止时间，依次运行时每个优化器各 S 秒 (默认 0，不限)
+ * -Dsched.concurrent=true Main 并发运行 RandomSearch 之后的其余优化器
+ */
+public final class OptimizerScheduler {
+    static final boolean CONCURRENT = Boolean.getBoolean("sched.concurrent");
+
+    /**
+     * 每个优化器的评估预算，两个上限先到者为准；0 表示不限。
+     */
+    public static final class Budget {
+        final long evaluations;
+        final long nanos;
+
+        public Budget(long evaluations, double seconds) {
+            this.evaluations = Math.max(0, evaluations);
+            this.nanos = seconds > 0 ? (long) (seconds * 1e9) : 0;
+        }
+
+        public static Budget unlimited() { return new Budget(0, 0); }
+
+        public static Budget fromSystemProperties() {
+            return new Budget(Long.getLong("sched.evaluations", 0), Double.parseDouble(System.getProperty("sched.seconds", "0")));
+        }
+
+        boolean isUnlimited() { return evaluations == 0 && nanos == 0; }
+
+        /** 从现在开始计算的截止时间 (System.nanoTime)，不限时返回 0。 */
+        long deadline() { return nanos == 0 ? 0 : Math.max(1, System.nanoTime() + nanos); }
+
+        boolean exhausted(long used, long deadline) {
+            return (evaluations > 0 && used >= evaluations) || (deadline != 0 && System.nanoTime() - deadline >= 0);
+        }
+
+        @Override
+        public String toString() {
+            if (isUnlimited()) return "不限";
+            String count = evaluations > 0 ? "每个优化器 " + evaluations + " 个候选解" : "";
+            String time = nanos > 0 ? String.format("%.1f 秒", nanos / 1e9) : "";
+            return count.isEmpty() ? time : time.isEmpty() ? count : count + " / " + time;
+        }
+    }
+
+    private static final class Entry {
+        final String header;
+        final String label;
+        final Optimizer optimizer;
+
+        Entry(String header, String label, Optimizer optimizer) {
+            this.header = header;
+            this.label = label;
+            this.optimizer = optimizer;
+        }
+    }
+
+    private final Budget budget;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public OptimizerScheduler(Budget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @param header 运行前打印的标题行。
+     * @param label  结果表中的算法名称。
+     */
+    public void add(String header, String label, Optimizer optimizer) {
+        entries.add(new Entry(header, label, optimizer));
+    }
+
+    public Budget getBudget() { return budget; }
+
+    /**
+     * 运行所有已添加的优化器，返回按添加顺序排列的 (算法名称, 最佳得分)。
+     */
+    public Map<String, Double> runAll(PrintStream out, double baselineScore, boolean concurrent) {
+        Map<String, Double> results = new LinkedHashMap<>();
+        if (!concurrent || entries.size() <= 1) {
+            for (Entry entry : entries) {
+                out.println(entry.header);
+                results.put(entry.label, run(entry.optimizer, out, baselineScore, budget, budget.deadline()));
+            }
+            return results;
+        }
+
+        Set<DataManager> managers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Entry entry : entries) {
+            if (!managers.add(entry.optimizer.getDataManager())) {
+                throw new IllegalArgumentException("并发运行的优化器必须各自持有 DataManager (见 DataManager.fork): " + entry.label);
+            }
+        }
+
+        long start = System.nanoTime();
+        long deadline = budget.deadline();
+        ExecutorService drivers = Executors.newFixedThreadPool(entries.size());
+        List<Future<Double>> futures = new ArrayList<>(entries.size());
+        List<ByteArrayOutputStream> logs = new ArrayList<>(entries.size());
+        try {
+            for (Entry entry : entries) {
+                ByteArrayOutputStream log = new ByteArrayOutputStream();
+                PrintStream logStream = new PrintStream(log, true, StandardCharsets.UTF_8);
+                logs.add(log);
+                futures.add(drivers.submit(() -> run(entry.optimizer, logStream, baselineScore, budget, deadline)));
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                double score = futures.get(i).get();
+                out.println(entries.get(i).header);
+                out.print(logs.get(i).toString(StandardCharsets.UTF_8));
+                results.put(entries.get(i).label, score);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并发运行优化器时被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("优化器运行失败", e.getCause());
+        } finally {
+            drivers.shutdownNow();
+        }
+        out.printf("\n并发运行 %d 个优化器, 评估预算: %s, 总耗时 %.1f 秒\n", entries.size(), budget, (System.nanoTime() - start) / 1e9);
+        return results;
+    }
+
+    /**
+     * 在调用线程上运行一个优化器直到它结束或预算用尽，返回最佳得分。
+     */
+    public static double run(Optimizer optimizer, PrintStream out, double baselineScore, Budget budget) {
+        return run(optimizer, out, baselineScore, budget, budget.deadline());
+    }
+
+    private static double run(Optimizer optimizer, PrintStream out, double baselineScore, Budget budget, long deadline) {
+        if (optimizer instanceof AsynchronousOptimizer && ((AsynchronousOptimizer) optimizer).isAsynchronous()) {
+            optimizer.begin(out, baselineScore);
+            return optimizer.finish(((AsynchronousOptimizer) optimizer).drive(budget, deadline));
+        }
+        CandidateEvaluator evaluator = CandidateEvaluator.create(optimizer.getTrace(), optimizer.getDataManager());
+        optimizer.begin(out, baselineScore);
+        long evaluations = 0;
+        // 最佳得分最后一次提高时已评估的候选解数量和用时 (time-to-target)
+        long start = System.nanoTime(), evaluationsToBest = 0, nanosToBest = 0;
+        double bestScore = optimizer.getBestScore();
+        Optimizer.Request request;
+        while ((request = optimizer.ask()) != null) {
+            if (budget.exhausted(evaluations, deadline)) {
+                out.printf("--- 评估预算用尽 (已评估 %d 个候选解), 提前结束 ---\n", evaluations);
+                break;
+            }
+            ParallelEvaluator.Result[] results = request.single
+                    ? new ParallelEvaluator.Result[]{evaluator.evaluate(request.candidates[0], request.reference, request.referenceScore, request.thresholds[0])}
+                    : evaluator.evaluateAll(request.candidates, request.thresholds);
+            evaluations += request.size();
+            optimizer.tell(results);
+            if (optimizer.getBestScore() > bestScore) {
+                bestScore = optimizer.getBestScore();
+                evaluationsToBest = evaluations;
+                nanosToBest = System.nanoTime() - start;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return optimizer.finish(String.format("%s, 吞吐量 %.1f 个候选解/秒, 最佳解在第 %d 个候选解时找到 (%.1f 秒)",
+                evaluator.budgetSummary(), evaluations / Math.max(seconds, 1e-9), evaluationsToBest, nanosToBest / 1e9));
+    }
+}
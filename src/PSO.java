@@ -1,85 +1,76 @@
-import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.Random;
-
-public class PSO {
+public class PSO extends AbstractOptimizer {
     private static final int POP_SIZE = 20;
     private static final int GENERATIONS = 100;
     private static final double INERTIA = 0.75;
     private static final double COGNITIVE = 1.0;
     private static final double SOCIAL = 1.0;
-    private static final int DIMENSIONS = 5;
 
-    private DataItem[] testData;
-    private DataManager baseDM;
-    private Random random;
+    private final double[][] position = new double[POP_SIZE][DIMENSIONS];
+    private final double[][] velocity = new double[POP_SIZE][DIMENSIONS];
+    private final double[][] pBestPosition = new double[POP_SIZE][DIMENSIONS];
+    private final double[] pBestScore = new double[POP_SIZE];
+    private boolean initialized = false;
+    private int gen = 0;
 
-    public PSO(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
+    public PSO(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
     }
 
-    private double evaluate(double[] weights) {
-        return DataTest.score(weights, testData, baseDM);
-    }
+    @Override
+    public String name() { return "PSO"; }
 
-    public double run(PrintStream out, double baselineScore) {
-        double[][] position = new double[POP_SIZE][DIMENSIONS];
-        double[][] velocity = new double[POP_SIZE][DIMENSIONS];
-        double[][] pBestPosition = new double[POP_SIZE][DIMENSIONS];
-        double[] pBestScore = new double[POP_SIZE];
-        double[] gBestPosition = new double[DIMENSIONS];
-        double gBestScore = -Double.MAX_VALUE;
+    @Override
+    public Request ask() {
+        if (!initialized) {
+            for (int i = 0; i < POP_SIZE; i++) {
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    position[i][j] = random.nextDouble();
+                    velocity[i][j] = random.nextDouble() * 0.1 - 0.05;
+                }
+                pBestPosition[i] = position[i].clone();
+            }
+            return Request.batch(position, null);
+        }
+        if (gen == GENERATIONS) return null;
 
+        // 同步 PSO：本代所有粒子都以代初的 gBest 移动，然后整代并行评估
+        double[] gBestPosition = bestSolution();
         for (int i = 0; i < POP_SIZE; i++) {
             for (int j = 0; j < DIMENSIONS; j++) {
-                position[i][j] = random.nextDouble();
-                velocity[i][j] = random.nextDouble() * 0.1 - 0.05;
-            }
-            pBestPosition[i] = position[i].clone();
-            pBestScore[i] = evaluate(position[i]);
-            if (pBestScore[i] > gBestScore) {
-                gBestScore = pBestScore[i];
-                gBestPosition = pBestPosition[i].clone();
-                baseDM.saveBestStats();
+                double r1 = random.nextDouble();
+                double r2 = random.nextDouble();
+                velocity[i][j] = INERTIA * velocity[i][j]
+                        + COGNITIVE * r1 * (pBestPosition[i][j] - position[i][j])
+                        + SOCIAL * r2 * (gBestPosition[j] - position[i][j]);
+                position[i][j] += velocity[i][j];
+                if (position[i][j] < 0) position[i][j] = 0;
+                if (position[i][j] > 1) position[i][j] = 1;
             }
         }
+        // 得分只有超过粒子的历史最好值才会被使用（gBest 不低于任何 pBest），以它为提前终止的阈值
+        return Request.batch(position, pBestScore);
+    }
 
-        for (int gen = 0; gen < GENERATIONS; gen++) {
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        if (!initialized) {
+            initialized = true;
             for (int i = 0; i < POP_SIZE; i++) {
-                for (int j = 0; j < DIMENSIONS; j++) {
-                    double r1 = random.nextDouble();
-                    double r2 = random.nextDouble();
-                    velocity[i][j] = INERTIA * velocity[i][j]
-                            + COGNITIVE * r1 * (pBestPosition[i][j] - position[i][j])
-                            + SOCIAL * r2 * (gBestPosition[j] - position[i][j]);
-                    position[i][j] += velocity[i][j];
-                    if (position[i][j] < 0) position[i][j] = 0;
-                    if (position[i][j] > 1) position[i][j] = 1;
-                }
-
-                double score = evaluate(position[i]);
-
-                if (score > pBestScore[i]) {
-                    pBestScore[i] = score;
-                    pBestPosition[i] = position[i].clone();
-                }
-                if (score > gBestScore) {
-                    gBestScore = score;
-                    gBestPosition = position[i].clone();
-                    baseDM.saveBestStats();
-                }
+                pBestScore[i] = results[i].score;
+                offer(pBestPosition[i], results[i]);
             }
-            double improvement = gBestScore - baselineScore;
-            out.printf("Gen %2d: Improvement = %.4f\n", gen + 1, Math.max(0, improvement));
+            return;
         }
 
-        out.println("\n=== PSO Finished ===");
-        double[] finalNormalizedBest = gBestPosition.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        baseDM.printStats(out);
-        return gBestScore;
+        for (int i = 0; i < POP_SIZE; i++) {
+            if (!results[i].isExact()) continue; // 被提前终止或只有估计值：不会超过 pBest
+            if (results[i].score > pBestScore[i]) {
+                pBestScore[i] = results[i].score;
+                pBestPosition[i] = position[i].clone();
+            }
+            offer(position[i], results[i]);
+        }
+        gen++;
+        progress(String.format("Gen %2d", gen));
     }
-}
\ No newline at end of file
+}
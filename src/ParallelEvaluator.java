@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 种群并行评估器：一代中的候选解互不依赖，把它们分给多个工作者同时调用 DataTest.score。
+ * 每个工作者持有自己的 DataManager（独立的缓存层级、对象状态和信道），只共享只读的 Trace，
+ * 评估结果连同统计快照一起按候选解下标返回，由调用方按原来的顺序决定 saveBestStats，保证结果与串行一致。
+ * 每个候选解的评估种子在调用线程上按下标顺序从 baseDM 取出，信道噪声因此与工作者数量和线程调度无关。
+ * 公共随机数模式下，ScoreCache 中已有的候选解和同一代中重复的候选解不会再次评估 (见 ScoreCache.keyFor)。
+ * 调用方可以为每个候选解给出阈值，baseDM 开启提前终止时得分上界低于阈值的评估会被中止 (见 DataTest.race)。
+ *
+ * 执行器通过系统属性配置：
+ * -Deval.executor=forkjoin|virtual|serial  (默认 forkjoin；virtual 需要 JDK 21+，否则退回 forkjoin)
+ * -Deval.parallelism=N                     (默认 CPU 核数)
+ */
+public class ParallelEvaluator implements CandidateEvaluator {
+    /**
+     * 一个候选解的评估结果。
+     */
+    public static final class Result {
+        final double score;
+        final DataManager.StatsSnapshot stats;
+        final boolean aborted;      // 提前终止：score 是低于阈值的得分上界，stats 只覆盖部分任务
+        final boolean estimated;    // 多保真评估中没有晋级到完整轨迹：score 是由前缀得分换算的估计值，stats 来自前缀
+
+        Result(double score, DataManager.StatsSnapshot stats) {
+            this(score, stats, false, false);
+        }
+
+        Result(double score, DataManager.StatsSnapshot stats, boolean aborted) {
+            this(score, stats, aborted, false);
+        }
+
+        Result(double score, DataManager.StatsSnapshot stats, boolean aborted, boolean estimated) {
+            this.score = score;
+            this.stats = stats;
+            this.aborted = aborted;
+            this.estimated = estimated;
+        }
+
+        /** 是否是完整轨迹上跑完的评估；只有这样的结果可以记为最佳解。 */
+        boolean isExact() { return !aborted && !estimated; }
+    }
+
+    private static final String EXECUTOR_KIND = System.getProperty("eval.executor", "forkjoin");
+    private static final int PARALLELISM = Integer.getInteger("eval.parallelism", Runtime.getRuntime().availableProcessors());
+    private static ExecutorService sharedExecutor;
+
+    private final Trace testData;
+    private final DataManager baseDM;
+    private final ExecutorService executor;
+    private final DataManager[] workers;
+    private final long baseTasksAtStart;
+    private long requests = 0;
+
+    public ParallelEvaluator(Trace testData, DataManager baseDM) {
+        this(testData, baseDM, sharedExecutor(), PARALLELISM);
+    }
+
+    /**
+     * @param executor    执行评估任务的线程池（为 null 时在调用线程上串行评估）。
+     * @param parallelism 工作者（即 DataManager）的数量。
+     */
+    public ParallelEvaluator(Trace testData, DataManager baseDM, ExecutorService executor, int parallelism) {
+        this.testData = testData;
+        this.baseDM = baseDM;
+        this.executor = executor;
+        this.workers = new DataManager[Math.max(1, parallelism)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = baseDM.newWorker();
+        }
+        this.baseTasksAtStart = baseDM.getSimulatedTasks();
+    }
+
+    /**
+     * 单个候选解直接在 baseDM 上评估（与原先各优化器自己调用 DataTest.score 相同），在调用线程上完成。
+     */
+    @Override
+    public Result evaluate(double[] candidate, double[] reference, double referenceScore, double threshold) {
+        requests++;
+        double score = DataTest.race(ScoringPolicy.of(candidate), testData.evaluationContext(), baseDM, threshold);
+        return new Result(score, baseDM.snapshotStats(), baseDM.wasAborted());
+    }
+
+    /** 本评估器实际仿真的任务数（baseDM 上的单个评估 + 各工作者上的批量评估）。 */
+    long simulatedTasks() { return baseDM.getSimulatedTasks() - baseTasksAtStart + workerTasks(); }
+
+    long workerTasks() {
+        long tasks = 0;
+        for (DataManager worker : workers) tasks += worker.getSimulatedTasks();
+        return tasks;
+    }
+
+    Trace getTrace() { return testData; }
+
+    @Override
+    public String budgetSummary() {
+        long tasks = simulatedTasks();
+        return String.format("评估预算: 提交 %d 个候选解, 仿真 %d 个任务 (折合 %.1f 次完整评估)",
+                requests, tasks, (double) tasks / Math.max(1, testData.length()));
+    }
+
+    /**
+     * 评估一整代候选解，返回与 candidates 一一对应的结果。
+     * thresholds[i] 是第 i 个候选解对调用方有意义的最低得分，为 null 时不设阈值。
+     * 被中止的结果 aborted 为 true，不写入 ScoreCache。
+     */
+    @Override
+    public Result[] evaluateAll(double[][] candidates, double[] thresholds) {
+        requests += candidates.length;
+        Result[] results = new Result[candidates.length];
+        long[] seeds = new long[candidates.length];
+        for (int i = 0; i < seeds.length; i++) seeds[i] = baseDM.nextEvaluationSeed();
+        double[] limits = new double[candidates.length];
+        for (int i = 0; i < limits.length; i++) limits[i] = thresholds == null ? Double.NEGATIVE_INFINITY : thresholds[i];
+        for (DataManager worker : workers) worker.adoptSettings(baseDM);
+
+        // 查缓存和批内去重都在调用线程上按下标顺序完成：已缓存的直接取结果，同一批中重复的权重只评估第一次出现者
+        EvaluationContext context = testData.evaluationContext();
+        ScoreCache cache = ScoreCache.shared();
+        ScoreCache.Key[] keys = new ScoreCache.Key[candidates.length];
+        int[] sameAs = new int[candidates.length];
+        int[] pending = new int[candidates.length];
+        int pendingCount = 0;
+        Map<ScoreCache.Key, Integer> firstInBatch = new HashMap<>();
+        for (int i = 0; i < candidates.length; i++) {
+            sameAs[i] = -1;
+            if (cache.isEnabled()) keys[i] = cache.keyFor(ScoringPolicy.of(candidates[i]), context, baseDM);
+            if (keys[i] != null) {
+                Integer first = firstInBatch.putIfAbsent(keys[i], i);
+                if (first != null) {
+                    sameAs[i] = first;
+                    limits[first] = Math.min(limits[first], limits[i]); // 重复者共用结果，阈值取最低的一个
+                    cache.recordHit();
+                    continue;
+                }
+                ScoreCache.Entry cached = cache.get(keys[i]);
+                if (cached != null) {
+                    results[i] = new Result(cached.score, cached.stats);
+                    continue;
+                }
+            }
+            pending[pendingCount++] = i;
+        }
+
+        evaluatePending(candidates, seeds, limits, results, pending, pendingCount);
+
+        for (int p = 0; p < pendingCount; p++) {
+            int i = pending[p];
+            if (keys[i] != null && !results[i].aborted) cache.put(keys[i], results[i].score, results[i].stats);
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            if (sameAs[i] >= 0) results[i] = results[sameAs[i]];
+        }
+        return results;
+    }
+
+    private void evaluatePending(double[][] candidates, long[] seeds, double[] limits, Result[] results, int[] pending, int pendingCount) {
+        int workerCount = Math.min(workers.length, pendingCount);
+        if (executor == null || workerCount <= 1) {
+            evaluateStrided(candidates, seeds, limits, results, pending, pendingCount, 0, 1, workers[0]);
+            return;
+        }
+
+        // 每个任务固定使用一个工作者，负责待评估列表中第 i, i+k, i+2k ... 个候选解，工作者之间没有任何共享的可变状态
+        List<Future<?>> futures = new ArrayList<>(workerCount);
+        for (int w = 0; w < workerCount; w++) {
+            final int start = w;
+            final DataManager worker = workers[w];
+            futures.add(executor.submit(() -> evaluateStrided(candidates, seeds, limits, results, pending, pendingCount, start, workerCount, worker)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并行评估被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("并行评估失败", e.getCause());
+        }
+    }
+
+    private void evaluateStrided(double[][] candidates, long[] seeds, double[] limits, Result[] results, int[] pending, int pendingCount,
+                                 int start, int step, DataManager worker) {
+        EvaluationContext context = testData.evaluationContext();
+        for (int p = start; p < pendingCount; p += step) {
+            int i = pending[p];
+            double score = DataTest.race(ScoringPolicy.of(candidates[i]), context, worker, seeds[i], limits[i]);
+            results[i] = new Result(score, worker.snapshotStats(), worker.wasAborted());
+        }
+    }
+
+    /**
+     * 所有优化器共享同一个执行器，避免 Main 中多个实验同时运行时线程数成倍膨胀。
+     */
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null && !"serial".equals(EXECUTOR_KIND)) {
+            if ("virtual".equals(EXECUTOR_KIND)) {
+                try {
+                    sharedExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    System.err.println("当前 JDK 不支持虚拟线程，改用 ForkJoinPool。");
+                }
+            }
+            if (sharedExecutor == null) {
+                sharedExecutor = new ForkJoinPool(PARALLELISM);
+            }
+        }
+        return sharedExecutor;
+    }
+}
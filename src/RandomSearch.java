@@ -1,48 +1,47 @@
 import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.Random;
 
-public class RandomSearch {
-    private static final int DIMENSIONS = 5;
+public class RandomSearch extends AbstractOptimizer {
     private static final int ATTEMPTS = 10;
-    private final DataItem[] testData;
-    private final DataManager baseDM;
-    private final Random random;
-
-    public RandomSearch(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
+
+    private double[] attempt;
+    private int attempts = 0;
+
+    public RandomSearch(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
+    }
+
+    @Override
+    public String name() { return "Single Random Attempt"; }
+
+    @Override
+    public void begin(PrintStream out, double baselineScore) {
+        super.begin(out, baselineScore);
+        log("Running " + ATTEMPTS + " random attempts to find a stable baseline...");
     }
 
-    private double evaluate(double[] weights) {
-        return DataTest.score(weights, testData, baseDM);
+    @Override
+    public Request ask() {
+        if (attempts == ATTEMPTS) return null;
+        attempt = randomWeights();
+        return Request.single(attempt);
+    }
+
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        attempts++;
+        offer(attempt, results[0]);
+    }
+
+    @Override
+    protected String finishedBanner() { return "=== Single Random Attempt Finished (Baseline) ==="; }
+
+    @Override
+    protected void printSummary(PrintStream out) {
+        out.printf("Final Best score = %.4f\n", getBestScore());
     }
 
+    /** 随机搜索本身就是基线，不需要比较对象。 */
     public double run(PrintStream out) {
-        double bestScore = -Double.MAX_VALUE;
-        double[] bestWeights = new double[DIMENSIONS];
-        out.println("Running " + ATTEMPTS + " random attempts to find a stable baseline...");
-
-        for (int i = 0; i < ATTEMPTS; i++) {
-            double[] randomWeights = new double[DIMENSIONS];
-            for (int j = 0; j < DIMENSIONS; j++) {
-                randomWeights[j] = random.nextDouble();
-            }
-            double currentScore = evaluate(randomWeights);
-            if (currentScore > bestScore) {
-                bestScore = currentScore;
-                bestWeights = randomWeights.clone();
-                baseDM.saveBestStats();
-            }
-        }
-
-        out.println("\n=== Single Random Attempt Finished (Baseline) ===");
-        double[] finalNormalizedBest = bestWeights.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        out.printf("Final Best score = %.4f\n", bestScore);
-        baseDM.printStats(out);
-        return bestScore;
+        return run(out, 0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,314 @@
+import java.util.Arrays;
+
+/**
+ * DataTest.score 使用的就绪队列：每次取出调度得分 (ScoringPolicy.getSchedulingScore) 最高的任务，
+ * 得分相同时取最先入队者 —— 与原先 "stream().max() + ArrayList.remove" 的选择结果完全一致，但不再线性扫描整个队列。
+ *
+ * 思路：得分 = w5 * ln(1 + 1000 / rem) - w4 * size / 1024，其中 rem = max(deadline - t, 1)。
+ * 1.  已过期 (deadline - t <= 1) 的任务紧急性项恒为 w5 * ln(1001)，得分不再随时间变化，
+ *     放入按 (得分降序, 入队序升序) 排列的 "静态堆"，堆顶就是它们中的最优者。
+ * 2.  未过期任务按 size 分类，每类一个按 (deadline, 入队序) 排列的堆。同一类中 deadline 越早得分越高 (w5 >= 0)，
+ *     因此只需比较各类堆顶附近与堆顶同分的那一小部分任务。
+ * 3.  一个全局 deadline 堆负责在时间推进时把到期的任务从分类堆移入静态堆，每个任务只迁移一次。
+ * w5 为 0 时所有得分都与时间无关，全部进入静态堆；w5 为负或权重非有限值时退回原先的线性扫描。
+ *
+ * "行号" 只是任务在 deadlines/sizes 数组中的下标：批量评估时就是 Trace 的行号；
+ * 流式评估时是 StreamingSimulation 回收复用的任务槽位，数组随槽位数增长时通过 ensureRows 重新绑定。
+ */
+final class ReadyQueue {
+    private long[] deadlines;
+    private int[] sizes;
+    private ScoringPolicy policy;
+    private int[] seqOf;
+    private int nextSeq = 0;
+    private int size = 0;
+
+    // --- 退回模式：按入队顺序保存的行号 ---
+    private boolean linear;
+    private int[] linearRows = new int[16];
+
+    // --- 堆模式（所有数组按轨迹长度一次分配，评估之间原地复用）---
+    private boolean allStatic;
+    private final RowHeap staticHeap;
+    private final RowHeap deadlineHeap;
+    private int[] classPositions;
+    private final IdSlotMap classOfSize = new IdSlotMap();
+    private RowHeap[] classes = new RowHeap[16];
+    private int classCount = 0;
+    private int[] classOfRow;
+    private int[] activeClasses = new int[16];
+    private int[] activeIndexOf = new int[16];
+    private int activeCount = 0;
+    private int[] searchStack = new int[16];
+
+    ReadyQueue(Trace trace) { this(trace.deadlines, trace.sizes, trace.length()); }
+
+    /**
+     * @param rows 行号上限（不含）；deadlines/sizes 可以比它长，例如 Trace 的前缀视图共享的列数组。
+     */
+    ReadyQueue(long[] deadlines, int[] sizes, int rows) {
+        this.deadlines = deadlines;
+        this.sizes = sizes;
+        this.seqOf = new int[rows];
+        this.staticHeap = new RowHeap(new int[rows]);
+        this.deadlineHeap = new RowHeap(new int[rows]);
+        this.classPositions = new int[rows];
+        this.classOfRow = new int[rows];
+    }
+
+    /**
+     * 任务数组扩容后重新绑定，并把按行号索引的内部数组扩展到新的长度。队列中已有的任务保持不变。
+     */
+    void ensureRows(long[] deadlines, int[] sizes) {
+        this.deadlines = deadlines;
+        this.sizes = sizes;
+        int rows = deadlines.length;
+        if (rows <= seqOf.length) return;
+        seqOf = Arrays.copyOf(seqOf, rows);
+        classOfRow = Arrays.copyOf(classOfRow, rows);
+        classPositions = Arrays.copyOf(classPositions, rows);
+        staticHeap.positions = Arrays.copyOf(staticHeap.positions, rows);
+        deadlineHeap.positions = Arrays.copyOf(deadlineHeap.positions, rows);
+        for (int c = 0; c < classCount; c++) classes[c].positions = classPositions;
+    }
+
+    /**
+     * 清空队列并切换到新的权重，供下一次评估复用。
+     * @param forceLinear 强制使用原先的线性扫描（用于基准测试对照）。
+     */
+    void reset(ScoringPolicy policy, boolean forceLinear) {
+        this.policy = policy;
+        boolean finite = Double.isFinite(policy.w5_urgency) && Double.isFinite(policy.w4_schedule);
+        this.linear = forceLinear || !finite || policy.w5_urgency < 0;
+        this.allStatic = policy.w5_urgency == 0;
+        nextSeq = 0;
+        size = 0;
+        staticHeap.size = 0;
+        deadlineHeap.size = 0;
+        for (int i = 0; i < activeCount; i++) classes[activeClasses[i]].size = 0;
+        activeCount = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public void add(int row, long currentTime) {
+        int seq = nextSeq++;
+        seqOf[row] = seq;
+        size++;
+        if (linear) {
+            if (size > linearRows.length) linearRows = Arrays.copyOf(linearRows, size * 2);
+            linearRows[size - 1] = row;
+        } else if (allStatic || isStatic(row, currentTime)) {
+            staticHeap.add(row, -score(row, currentTime), seq);
+        } else {
+            addToClass(row, seq);
+        }
+    }
+
+    /**
+     * 取出并返回 currentTime 时刻调度得分最高的任务行号（同分取最先入队者）；队列为空时返回 -1。
+     */
+    public int poll(long currentTime) {
+        if (size == 0) return -1;
+        if (linear) return pollLinear(currentTime);
+
+        if (!allStatic) migrateExpired(currentTime);
+
+        int bestRow = -1;
+        int bestClass = -1;
+        double bestScore = 0;
+        if (!staticHeap.isEmpty()) {
+            bestRow = staticHeap.peek();
+            bestScore = score(bestRow, currentTime);
+        }
+        for (int i = 0; i < activeCount; i++) {
+            int c = activeClasses[i];
+            int row = bestInClass(classes[c], currentTime);
+            double s = score(row, currentTime);
+            int cmp = bestRow < 0 ? 1 : Double.compare(s, bestScore);
+            if (cmp > 0 || (cmp == 0 && seqOf[row] < seqOf[bestRow])) {
+                bestRow = row;
+                bestScore = s;
+                bestClass = c;
+            }
+        }
+
+        if (bestClass < 0) {
+            staticHeap.pop();
+        } else {
+            classes[bestClass].remove(bestRow);
+            deadlineHeap.remove(bestRow);
+            if (classes[bestClass].isEmpty()) deactivate(bestClass);
+        }
+        size--;
+        return bestRow;
+    }
+
+    private int pollLinear(long currentTime) {
+        int bestIndex = 0;
+        double bestScore = score(linearRows[0], currentTime);
+        for (int i = 1; i < size; i++) {
+            double s = score(linearRows[i], currentTime);
+            if (Double.compare(s, bestScore) > 0) {
+                bestScore = s;
+                bestIndex = i;
+            }
+        }
+        int row = linearRows[bestIndex];
+        System.arraycopy(linearRows, bestIndex + 1, linearRows, bestIndex, size - bestIndex - 1);
+        size--;
+        return row;
+    }
+
+    private double score(int row, long currentTime) {
+        return policy.getSchedulingScore(deadlines[row], sizes[row], currentTime);
+    }
+
+    // rem <= 1 时紧急性项被截断为常数，之后得分与时间无关
+    private boolean isStatic(int row, long currentTime) { return deadlines[row] - currentTime <= 1; }
+
+    private void migrateExpired(long currentTime) {
+        while (!deadlineHeap.isEmpty() && isStatic(deadlineHeap.peek(), currentTime)) {
+            int row = deadlineHeap.pop();
+            int c = classOfRow[row];
+            classes[c].remove(row);
+            if (classes[c].isEmpty()) deactivate(c);
+            staticHeap.add(row, -score(row, currentTime), seqOf[row]);
+        }
+    }
+
+    /**
+     * 类内得分随 deadline 单调不增，与堆顶同分的任务构成 (deadline, 入队序) 顺序下的一个前缀，
+     * 在堆上只需沿 "同分" 的节点向下搜索，就能找到其中入队最早者。通常只访问堆顶和它的两个孩子。
+     */
+    private int bestInClass(RowHeap heap, long currentTime) {
+        int top = heap.peek();
+        double topScore = score(top, currentTime);
+        int best = top;
+        int stackSize = 0;
+        searchStack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int i = searchStack[--stackSize];
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < heap.size; child++) {
+                int row = heap.rows[child];
+                if (Double.compare(score(row, currentTime), topScore) != 0) continue;
+                if (seqOf[row] < seqOf[best]) best = row;
+                if (stackSize == searchStack.length) searchStack = Arrays.copyOf(searchStack, stackSize * 2);
+                searchStack[stackSize++] = child;
+            }
+        }
+        return best;
+    }
+
+    private void addToClass(int row, int seq) {
+        int sizeKey = sizes[row];
+        int c = classOfSize.get(sizeKey);
+        if (c == IdSlotMap.MISSING) {
+            c = classCount++;
+            if (c == classes.length) {
+                classes = Arrays.copyOf(classes, c * 2);
+                activeIndexOf = Arrays.copyOf(activeIndexOf, c * 2);
+                activeClasses = Arrays.copyOf(activeClasses, c * 2);
+            }
+            classes[c] = new RowHeap(classPositions);
+            classOfSize.put(sizeKey, c);
+        }
+        if (classes[c].isEmpty()) {
+            activeIndexOf[c] = activeCount;
+            activeClasses[activeCount++] = c;
+        }
+        classOfRow[row] = c;
+        classes[c].add(row, deadlines[row], seq);
+        deadlineHeap.add(row, deadlines[row], seq);
+    }
+
+    private void deactivate(int c) {
+        int idx = activeIndexOf[c];
+        int last = activeClasses[--activeCount];
+        activeClasses[idx] = last;
+        activeIndexOf[last] = idx;
+    }
+
+    /**
+     * 按 (key, seq) 升序排列的行号索引堆，支持按行号删除。
+     * positions 数组按行号记录堆内下标，同一行任一时刻只属于一个共享该数组的堆。
+     */
+    private static final class RowHeap {
+        int[] rows = new int[8];
+        double[] keys = new double[8];
+        int[] seqs = new int[8];
+        int size = 0;
+        private int[] positions;
+
+        RowHeap(int[] positions) { this.positions = positions; }
+
+        boolean isEmpty() { return size == 0; }
+        int peek() { return rows[0]; }
+
+        void add(int row, double key, int seq) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+                seqs = Arrays.copyOf(seqs, size * 2);
+            }
+            rows[size] = row;
+            keys[size] = key;
+            seqs[size] = seq;
+            positions[row] = size;
+            siftUp(size++);
+        }
+
+        int pop() {
+            int row = rows[0];
+            remove(row);
+            return row;
+        }
+
+        void remove(int row) {
+            int i = positions[row];
+            size--;
+            if (i != size) {
+                rows[i] = rows[size];
+                keys[i] = keys[size];
+                seqs[i] = seqs[size];
+                positions[rows[i]] = i;
+                siftUp(i);
+                siftDown(positions[rows[i]]);
+            }
+        }
+
+        private boolean less(int a, int b) {
+            int cmp = Double.compare(keys[a], keys[b]);
+            return cmp != 0 ? cmp < 0 : seqs[a] < seqs[b];
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(i, parent)) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int smallest = (left + 1 < size && less(left + 1, left)) ? left + 1 : left;
+                if (!less(smallest, i)) break;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tr = rows[a]; rows[a] = rows[b]; rows[b] = tr;
+            double tk = keys[a]; keys[a] = keys[b]; keys[b] = tk;
+            int ts = seqs[a]; seqs[a] = seqs[b]; seqs[b] = ts;
+            positions[rows[a]] = a;
+            positions[rows[b]] = b;
+        }
+    }
+}
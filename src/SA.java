@@ -1,78 +1,58 @@
-import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.Random;
-
-public class SA {
-    private static final int DIMENSIONS = 5;
+public class SA extends AbstractOptimizer {
     private static final double INIT_TEMP = 500;
     private static final double COOLING_RATE = 0.9;
     private static final int ITERATIONS_PER_TEMP = 100;
     private static final double MIN_TEMP = 5e-3;
 
-    private DataItem[] testData;
-    private DataManager baseDM;
-    private Random random;
+    private double[] currentSolution;
+    private double currentScore;
+    private double temperature = INIT_TEMP;
+    private int generation = 0;
+    private int iteration = 0;
+    // --- 正在评估的邻居及其接受判定用的随机数 ---
+    private double[] neighborSolution;
+    private double u;
 
-    public SA(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
+    public SA(Trace testData, DataManager baseDM, long seed) {
+        super(testData, baseDM, seed);
     }
 
-    private double evaluate(double[] weights, double currentBestScore) {
-        baseDM.resetCurrentRunStats();
-        double score = DataTest.score(weights, testData, baseDM);
-        if (score > currentBestScore) {
-            baseDM.saveBestStats();
+    @Override
+    public String name() { return "SA (Standard Version)"; }
+
+    @Override
+    public Request ask() {
+        if (currentSolution == null) {
+            neighborSolution = randomWeights();
+            return Request.single(neighborSolution);
         }
-        return score;
+        if (temperature <= MIN_TEMP) return null;
+        neighborSolution = generateNeighbor(currentSolution);
+        // 先抽取接受判定用的随机数：邻居得分低于 current + T * ln(u) 时一定被拒绝，评估器可以据此提前停止
+        u = random.nextDouble();
+        return Request.single(neighborSolution, currentSolution, currentScore, currentScore + temperature * Math.log(u));
     }
 
-    public double run(PrintStream out, double baselineScore) {
-        double[] currentSolution = randomWeights();
-        double bestScore = evaluate(currentSolution, -Double.MAX_VALUE);
-        double[] bestSolution = currentSolution.clone();
-        double currentScore = bestScore;
-
-        double temperature = INIT_TEMP;
-        int generation = 0;
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        ParallelEvaluator.Result neighbor = results[0];
+        offer(neighborSolution, neighbor);
+        if (currentSolution == null) {
+            currentSolution = neighborSolution;
+            currentScore = neighbor.score;
+            return;
+        }
 
-        while (temperature > MIN_TEMP) {
+        if (neighbor.isExact() && acceptanceProbability(currentScore, neighbor.score, temperature) > u) {
+            currentSolution = neighborSolution;
+            currentScore = neighbor.score;
+        }
+        if (++iteration == ITERATIONS_PER_TEMP) {
+            iteration = 0;
             generation++;
-            for (int i = 0; i < ITERATIONS_PER_TEMP; i++) {
-                double[] neighborSolution = generateNeighbor(currentSolution);
-                double neighborScore = evaluate(neighborSolution, bestScore);
-
-                if (neighborScore > bestScore) {
-                    bestScore = neighborScore;
-                    bestSolution = neighborSolution.clone();
-                }
-
-                if (acceptanceProbability(currentScore, neighborScore, temperature) > random.nextDouble()) {
-                    currentSolution = neighborSolution;
-                    currentScore = neighborScore;
-                }
-            }
-            double improvement = bestScore - baselineScore;
-            out.printf("Gen %2d (Temp %.2e): Improvement = %.4f\n",
-                    generation, temperature, Math.max(0, improvement));
+            progress(String.format("Gen %2d (Temp %.2e)", generation, temperature));
             temperature *= COOLING_RATE;
         }
-
-        out.println("\n=== SA (Standard Version) Finished ===");
-        double[] finalNormalizedBest = bestSolution.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        baseDM.printStats(out);
-        return bestScore;
-    }
-
-    private double[] randomWeights() {
-        double[] w = new double[DIMENSIONS];
-        for (int i = 0; i < DIMENSIONS; i++) {
-            w[i] = random.nextDouble();
-        }
-        return w;
     }
 
     private double[] generateNeighbor(double[] current) {
@@ -94,4 +74,4 @@ public class SA {
         }
         return Math.exp((neighborScore - currentScore) / temperature);
     }
-}
\ No newline at end of file
+}
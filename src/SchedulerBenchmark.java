@@ -0,0 +1,80 @@
+import java.util.Random;
+
+/**
+ * 就绪队列基准测试：在严重积压的负载下对比 ReadyQueue 的堆实现与原先的线性扫描。
+ * 到达间隔远小于固定服务时间，就绪队列会持续增长到数千个任务；
+ * 两种实现逐次比较取出的任务，确保选择结果完全一致，并报告耗时与队列峰值长度。
+ * 用法: java SchedulerBenchmark [任务数] [服务时间ms]
+ */
+public class SchedulerBenchmark {
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long serviceMillis = args.length > 1 ? Long.parseLong(args[1]) : 40;
+        Random random = new Random(42);
+
+        int[] ids = new int[tasks];
+        int[] sizes = new int[tasks];
+        long[] arrivals = new long[tasks];
+        long[] deadlines = new long[tasks];
+        long time = 804556800000L;
+        for (int i = 0; i < tasks; i++) {
+            time += random.nextInt(20);
+            ids[i] = random.nextInt(1000);
+            sizes[i] = 200 + random.nextInt(50000);
+            arrivals[i] = time;
+            deadlines[i] = time + 1500 + random.nextInt(4000);
+        }
+        Trace trace = new Trace("backlog_request", ids, sizes, arrivals, deadlines);
+        System.out.printf("任务数: %d, 平均到达间隔: ~10 ms, 服务时间: %d ms\n", tasks, serviceMillis);
+
+        double[][] weightSets = {
+                {0.2, 0.2, 0.2, 0.2, 0.2},
+                {0.5, 0.1, 0.3, 0.9, 0.05},
+                {0.5, 0.1, 0.3, 0.0, 0.4},
+                {0.5, 0.1, 0.3, 1.0, 0.0},
+        };
+        for (double[] weights : weightSets) {
+            ScoringPolicy policy = ScoringPolicy.of(weights);
+            long t0 = System.nanoTime();
+            int[] linearOrder = replay(trace, policy, true, serviceMillis);
+            long t1 = System.nanoTime();
+            int[] heapOrder = replay(trace, policy, false, serviceMillis);
+            long t2 = System.nanoTime();
+            for (int i = 0; i < tasks; i++) {
+                if (linearOrder[i] != heapOrder[i]) {
+                    throw new IllegalStateException("第 " + i + " 次调度选择不一致: " + linearOrder[i] + " vs " + heapOrder[i]);
+                }
+            }
+            System.out.printf("w5=%.2f w_size=%.2f | 队列峰值 %5d | 线性扫描 %8.1f ms | 堆 %8.1f ms | 选择序列一致\n",
+                    weights[3], weights[4], linearOrder[tasks], (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        }
+    }
+
+    /**
+     * 与 DataTest.score 相同的调度循环，但每个任务的服务时间固定，只测量就绪队列本身。
+     * @return 依次取出的行号，最后一个元素是队列峰值长度。
+     */
+    private static int[] replay(Trace trace, ScoringPolicy policy, boolean linear, long serviceMillis) {
+        int n = trace.length();
+        int[] order = new int[n + 1];
+        ReadyQueue queue = new ReadyQueue(trace);
+        queue.reset(policy, linear);
+        int next = 0, done = 0, peak = 0;
+        long currentTime = trace.arrivalTimes[0];
+        while (done < n) {
+            while (next < n && trace.arrivalTimes[next] <= currentTime) {
+                queue.add(next++, currentTime);
+            }
+            peak = Math.max(peak, queue.size());
+            if (!queue.isEmpty()) {
+                order[done++] = queue.poll(currentTime);
+                currentTime += serviceMillis;
+            } else {
+                currentTime = trace.arrivalTimes[next];
+            }
+        }
+        order[n] = peak;
+        return order;
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 评估结果缓存：ACO 的 41 点网格、GA 中未变化的个体、UpdateSA 的 GA 救援都会反复提交相同的权重向量，
+ * 命中时直接返回上一次的得分和统计快照，不再重放整条轨迹。
+ *
+ * 键 = (评估上下文, DataManager 配置, 实验种子, 量化后的权重)：
+ * 1.  评估上下文区分数据集（包括同一轨迹的不同前缀），DataManager 配置包括两级缓存容量和淘汰策略、重复次数和是否公共随机数；
+ * 2.  实验种子 (DataManager.setSeed) 使并发运行的不同实验互不共享结果；
+ * 3.  量化步长为 0 时按权重的精确值匹配，大于 0 时落在同一格子里的权重共用第一次评估的结果。
+ * 公共随机数模式下评估本身是确定的，缓存不改变任何结果，因此缓存只在公共随机数模式下生效 (keyFor 返回 null)。
+ * 非公共随机数模式下复用结果会让重复的权重一直看到第一次抽到的噪声，SA 等算法又会锁定偶然的好运气或坏运气，
+ * 只有显式指定 -Deval.cache.noisy=true 时才缓存。
+ *
+ * 容量有上限，按最近最少使用 (LRU) 淘汰；所有方法都是线程安全的。
+ * 通过系统属性配置：-Deval.cache.size=N (默认 4096，0 表示关闭)，-Deval.cache.quantum=q (默认 0)，-Deval.cache.noisy=true。
+ */
+public final class ScoreCache {
+    private static final ScoreCache SHARED = new ScoreCache(
+            Integer.getInteger("eval.cache.size", 4096),
+            Double.parseDouble(System.getProperty("eval.cache.quantum", "0")),
+            Boolean.getBoolean("eval.cache.noisy"));
+
+    /**
+     * 缓存的一次评估结果。
+     */
+    public static final class Entry {
+        final double score;
+        final DataManager.StatsSnapshot stats;
+
+        Entry(double score, DataManager.StatsSnapshot stats) {
+            this.score = score;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * 缓存键。由 keyFor 构造，按全部字段比较。
+     */
+    public static final class Key {
+        private final long[] fields;
+        private final int hash;
+
+        private Key(long[] fields) {
+            this.fields = fields;
+            this.hash = Arrays.hashCode(fields);
+        }
+
+        @Override
+        public boolean equals(Object o) { return o instanceof Key && Arrays.equals(fields, ((Key) o).fields); }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+
+    private final int capacity;
+    private final double quantum;
+    private final boolean noisy;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits = 0, misses = 0;
+
+    public ScoreCache(int capacity, double quantum) { this(capacity, quantum, false); }
+
+    /**
+     * @param noisy 非公共随机数模式下也缓存 (重复的权重复用第一次的噪声)
+     */
+    public ScoreCache(int capacity, double quantum, boolean noisy) {
+        this.capacity = Math.max(0, capacity);
+        this.quantum = Math.max(0, quantum);
+        this.noisy = noisy;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) { return size() > ScoreCache.this.capacity; }
+        };
+    }
+
+    /** 所有优化器共享的缓存。 */
+    public static ScoreCache shared() { return SHARED; }
+
+    public boolean isEnabled() { return capacity > 0; }
+
+    /**
+     * 构造 dm 当前配置下的缓存键；dm 没有开启公共随机数 (且没有指定 noisy) 时返回 null，表示这次评估不查也不写缓存。
+     */
+    public Key keyFor(ScoringPolicy policy, EvaluationContext context, DataManager dm) {
+        if (!dm.isCommonRandomNumbers() && !noisy) return null;
+        double[] weights = {policy.w1, policy.w2, policy.w4_cache, policy.w5_urgency, policy.w4_schedule};
+        long[] fields = new long[12 + weights.length];
+        fields[0] = context.id;
+        fields[1] = dm.local.capacity;
+        fields[2] = dm.cloud.capacity;
+        fields[3] = dm.getReplications();
+        fields[4] = dm.isCommonRandomNumbers() ? 1 : 0;
+        fields[5] = dm.getExperimentSeed();
+        fields[6] = dm.local.getEvictionPolicyName().hashCode();
+        fields[7] = dm.cloud.getEvictionPolicyName().hashCode();
+        fields[8] = dm.local.hasAdmissionFilter() ? 1 : 0;
+        fields[9] = dm.cloud.hasAdmissionFilter() ? 1 : 0;
+        fields[10] = dm.isExclusive() ? 1 : 0;
+        fields[11] = dm.isCoalescing() ? 1 : 0;
+        for (int i = 0; i < weights.length; i++) {
+            fields[12 + i] = quantum > 0 ? Math.round(weights[i] / quantum) : Double.doubleToLongBits(weights[i] + 0.0);
+        }
+        return new Key(fields);
+    }
+
+    /**
+     * 查找并计数；未命中返回 null。
+     */
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) hits++; else misses++;
+        return entry;
+    }
+
+    /** 在缓存之外被复用的结果（例如同一批中重复的候选解）也计为命中。 */
+    public synchronized void recordHit() { hits++; }
+
+    public synchronized void put(Key key, double score, DataManager.StatsSnapshot stats) {
+        if (capacity > 0) entries.put(key, new Entry(score, stats));
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("评估缓存: 命中 %d / 查询 %d (命中率 %.1f%%), 当前 %d 项 (上限 %d, 量化步长 %s, %s)",
+                hits, total, total == 0 ? 0.0 : 100.0 * hits / total, entries.size(), capacity,
+                quantum > 0 ? String.valueOf(quantum) : "精确匹配", noisy ? "非公共随机数模式也缓存" : "仅公共随机数模式");
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * 一次评估所使用的 5 个权重（w1,w2,w4 用于缓存, w5,w_size 用于调度）。
+ * 对象不可变，随 DataTest.score -> DataManager -> Cathe 一路传递，
+ * 取代了原先 DataItem 中的静态权重字段，使多个评估可以在同一个 JVM 中并发运行而互不干扰。
+ */
+public final class ScoringPolicy {
+    public static final ScoringPolicy DEFAULT = new ScoringPolicy(0.2, 0.2, 0.2, 0.2, 0.2);
+
+    final double w1, w2, w4_cache;          // 缓存权重
+    final double w5_urgency, w4_schedule;   // 调度权重
+
+    public ScoringPolicy(double w1, double w2, double w4_cache, double w5_urgency, double w4_schedule) {
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w4_cache = w4_cache;
+        this.w5_urgency = w5_urgency;
+        this.w4_schedule = w4_schedule;
+    }
+
+    public static ScoringPolicy of(double[] w) {
+        if (w.length != 5) throw new IllegalArgumentException("权重数组长度必须为5");
+        // w[2]: size 用于缓存的权重, w[3]: 紧急性用于调度的权重, w[4]: size 用于调度的权重
+        return new ScoringPolicy(w[0], w[1], w[2], w[3], w[4]);
+    }
+
+    public double getCacheScore(int frequency, long lastAccessTime, int size, long currentTime) {
+
+        double gapInSeconds = (currentTime - lastAccessTime) / 2000.0;
+
+        double sizeInKB = size / 1024.0;
+
+
+        double scaledFrequency = Math.log(1 + frequency*10);
+
+        return 10+w1 * scaledFrequency - w2 * gapInSeconds - w4_cache * sizeInKB;
+    }
+
+    /**
+     * 淘汰堆使用的键：getCacheScore 去掉常数项和 "- w2 * currentTime" 这一对所有缓存项相同的平移量。
+     * 同一时刻下两项的键与缓存得分大小关系一致，且不随 currentTime 变化，只有在 updateAccess 后才需要重新计算。
+     * @param baseTime 任意固定的参考时间，用来让 (lastAccessTime - baseTime) 保持较小以减少精度损失。
+     */
+    public double getEvictionKey(int frequency, long lastAccessTime, int size, long baseTime) {
+        double recencyInSeconds = (lastAccessTime - baseTime) / 2000.0;
+        double sizeInKB = size / 1024.0;
+        double scaledFrequency = Math.log(1 + frequency*10);
+        return w1 * scaledFrequency + w2 * recencyInSeconds - w4_cache * sizeInKB;
+    }
+
+    public double getSchedulingScore(long deadline, int size, long currentTime) {
+        double remainingTime = deadline - currentTime;
+        if (remainingTime <= 0) {
+            remainingTime = 1;
+        }
+        // --- 核心修改：调度评分现在由 紧急性 和 size 决定 ---
+        // 紧急性越高分越高，size 越大分越低 (优先处理小任务)
+        return w5_urgency * Math.log(1 + 1000.0 / remainingTime) - w4_schedule * size/1024;
+    }
+}
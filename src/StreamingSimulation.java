@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 流式仿真：请求从 ArrivalStream 逐条拉取，仿真时间推进到它的到达时间时才进入就绪队列，
+ * 因此不需要把整条轨迹装入内存，可以重放上亿条请求的生产轨迹。
+ *
+ * 调度循环与 DataTest.score 完全相同（同一个 ReadyQueue、同一个 DataManager.processTask），区别只在于：
+ * 1.  就绪队列中的任务占用可回收的 "任务槽位"，槽位数组只随队列峰值长度增长；
+ * 2.  对象在第一次到达时才登记（DataManager.admit），远端云也在到达时才装入该对象，
+ *     所以访问频次只统计已到达的请求，而批量评估在仿真开始前就把整条轨迹装入了远端云。
+ * 内存占用由就绪队列长度和各层缓存的对象数决定，与轨迹长度无关。
+ *
+ * 统计按仿真时间窗口增量输出：任务归入它开始处理时所在的窗口，每个非空窗口结束时回调一次 WindowStats。
+ * 一个实例持有可复用的槽位数组和就绪队列，不是线程安全的；并行评估时每个线程各用一个实例和一个 DataManager。
+ *
+ * 用法: java StreamingSimulation <轨迹文件(.trc 或 .csv)> [窗口秒数] [w1 w2 w3 w4 w5]
+ */
+public final class StreamingSimulation {
+
+    /**
+     * 一个时间窗口内的统计增量。score 按 getSystemScore 的公式只对本窗口计算，cumulativeScore 是截至窗口结束的整体得分。
+     */
+    public static final class WindowStats {
+        public final long windowStart, windowEnd;
+        public final int tasks, completedTasks;
+        public final int totalAccessed, localHits, cloudHits, remoteAccesses;
+        public final double totalDelaySeconds;
+        public final int readyQueueSize, objectCount;
+        public final double score, cumulativeScore;
+
+        private WindowStats(long windowStart, long windowEnd, DataManager.StatsSnapshot from, DataManager dm,
+                            int readyQueueSize) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.tasks = dm.totalTasks - from.totalTasks;
+            this.completedTasks = dm.completedTasks - from.completedTasks;
+            this.totalAccessed = dm.totalAccessed - from.totalAccessed;
+            this.localHits = dm.localHits - from.localHits;
+            this.cloudHits = dm.cloudHits - from.cloudHits;
+            this.remoteAccesses = dm.remoteAccesses - from.remoteAccesses;
+            this.totalDelaySeconds = dm.totalDelaySeconds - from.totalDelaySeconds;
+            this.readyQueueSize = readyQueueSize;
+            this.objectCount = dm.getObjectCount();
+            this.score = DataManager.systemScore(totalAccessed, localHits, cloudHits, completedTasks, tasks, totalDelaySeconds);
+            this.cumulativeScore = dm.getSystemScore();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d, %d) 任务 %d, 完成率 %.3f, 本地命中率 %.3f, 边缘云命中率 %.3f, 平均延迟 %.3f ms, 队列 %d, 对象 %d, 窗口得分 %.4f, 累计得分 %.4f",
+                    windowStart, windowEnd, tasks, (double) completedTasks / Math.max(1, tasks),
+                    (double) localHits / Math.max(1, totalAccessed), (double) cloudHits / Math.max(1, totalAccessed),
+                    totalDelaySeconds * 1000 / Math.max(1, tasks), readyQueueSize, objectCount, score, cumulativeScore);
+        }
+    }
+
+    // --- 任务槽位：就绪队列中每个任务一个，出队后回收 ---
+    private long[] deadlines = new long[64];
+    private int[] sizes = new int[64];
+    private int[] objects = new int[64];
+    private long[] arrivals = new long[64];
+    private int[] freeSlots = new int[64];
+    private int freeCount = 0;
+    private int slotCount = 0;
+    private final ReadyQueue readyQueue = new ReadyQueue(deadlines, sizes, deadlines.length);
+
+    /**
+     * 对整条请求流做一次仿真。
+     * @param windowMillis 统计窗口长度（仿真时间，毫秒）；不大于 0 时只在结束时回调一次。
+     * @param listener     每个非空窗口结束时的回调，可以为 null。
+     * @return 整体得分，与 DataManager.getSystemScore 相同。
+     */
+    public double run(ArrivalStream stream, ScoringPolicy policy, DataManager dm, long windowMillis, Consumer<WindowStats> listener) {
+        dm.beginStreaming(policy);
+        readyQueue.reset(policy, false);
+        freeCount = 0;
+        slotCount = 0;
+
+        boolean pending = stream.next();
+        long currentTime = pending ? stream.arrivalTime() : 0;
+        long lastArrival = Long.MIN_VALUE;
+        long window = windowMillis > 0 ? windowMillis : Long.MAX_VALUE;
+        long windowStart = currentTime;
+        DataManager.StatsSnapshot windowFrom = dm.snapshotStats();
+
+        while (true) {
+            while (pending && stream.arrivalTime() <= currentTime) {
+                long arrival = stream.arrivalTime();
+                if (arrival < lastArrival) {
+                    throw new IllegalStateException("流式评估要求请求按到达时间非递减排列: " + arrival + " < " + lastArrival);
+                }
+                lastArrival = arrival;
+                int slot = allocateSlot();
+                deadlines[slot] = stream.deadline();
+                sizes[slot] = stream.size();
+                objects[slot] = dm.admit(stream.id(), stream.size(), arrival);
+                arrivals[slot] = arrival;
+                readyQueue.add(slot, currentTime);
+                pending = stream.next();
+            }
+
+            if (!readyQueue.isEmpty()) {
+                if (currentTime - windowStart >= window) {
+                    long windowEnd = windowStart + window;
+                    emit(listener, windowStart, windowEnd, windowFrom, dm);
+                    windowStart = windowEnd + (currentTime - windowEnd) / window * window; // 跳过没有任务的空窗口
+                    windowFrom = dm.snapshotStats();
+                }
+                int slot = readyQueue.poll(currentTime);
+                currentTime += dm.processTask(objects[slot], arrivals[slot], deadlines[slot], currentTime);
+                freeSlots[freeCount++] = slot;
+            } else if (pending) {
+                currentTime = stream.arrivalTime();
+            } else {
+                break;
+            }
+        }
+        long windowEnd = window == Long.MAX_VALUE ? currentTime : windowStart + window;
+        emit(listener, windowStart, windowEnd, windowFrom, dm);
+        return dm.getSystemScore();
+    }
+
+    private void emit(Consumer<WindowStats> listener, long windowStart, long windowEnd, DataManager.StatsSnapshot from, DataManager dm) {
+        if (listener == null || dm.totalTasks == from.totalTasks) return;
+        listener.accept(new WindowStats(windowStart, windowEnd, from, dm, readyQueue.size()));
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        int slot = slotCount++;
+        if (slot == deadlines.length) {
+            int capacity = slot * 2;
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+            arrivals = Arrays.copyOf(arrivals, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+            readyQueue.ensureRows(deadlines, sizes);
+        }
+        return slot;
+    }
+
+    /** 当前分配过的任务槽位数，即就绪队列的峰值长度。 */
+    public int peakSlots() { return slotCount; }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("用法: java StreamingSimulation <轨迹文件(.trc 或 .csv)> [窗口秒数] [w1 w2 w3 w4 w5]");
+            return;
+        }
+        long windowMillis = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 3600) * 1000);
+        double[] weights = {0.2, 0.2, 0.2, 0.2, 0.2};
+        if (args.length >= 7) {
+            for (int i = 0; i < 5; i++) weights[i] = Double.parseDouble(args[2 + i]);
+        }
+        DataManager dm = new DataManager(3000L * 1024L, 5000L * 1024L);
+        StreamingSimulation simulation = new StreamingSimulation();
+
+        long t0 = System.nanoTime();
+        double score;
+        if (args[0].endsWith(TraceFile.EXTENSION)) {
+            try (TraceFile.Stream stream = TraceFile.stream(Paths.get(args[0]))) {
+                System.out.println("流式读取 " + args[0] + " (" + stream.rows() + " 行)");
+                score = simulation.run(stream, ScoringPolicy.of(weights), dm, windowMillis, System.out::println);
+            }
+        } else {
+            // CSV 没有流式解析器，先整体加载；超大轨迹请先用 TraceFile 转换为 .trc
+            Trace trace = CsvTraceLoader.load(args[0], "nasa_request");
+            score = simulation.run(ArrivalStream.of(trace), ScoringPolicy.of(weights), dm, windowMillis, System.out::println);
+        }
+        System.out.printf("总任务数 %d, 总得分 %.4f, 就绪队列峰值 %d, 对象数 %d, 耗时 %.1f ms\n",
+                dm.totalTasks, score, simulation.peakSlots(), dm.getObjectCount(), (System.nanoTime() - t0) / 1e6);
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 只读的列式任务轨迹（struct-of-arrays）。
+ * 每个请求只占用 id/size 两个 int 和 arrival/deadline 两个 long，类型字符串整条轨迹只存一份。
+ * 构造完成后不再修改，可以被所有优化器和所有线程安全地共享；
+ * 仿真过程中会变化的缓存状态（访问频次、最近访问时间）放在每个 DataManager 自己的 ObjectState 中。
+ *
+ * 除按行存储的请求列外，还把重复出现的 id 压缩为连续的 "对象编号" (0..objectCount-1)：
+ * 缓存层和 ObjectState 都按对象编号直接寻址数组，不再需要任何哈希查找。
+ *
+ * 对象按首次出现的顺序编号，因此任意前缀 [0, n) 中出现的对象恰好是编号 0..k-1 的那些：
+ * prefix(n) 直接共享父轨迹的全部列数组，只记录自己的行数和对象数，不做任何拷贝。
+ */
+public final class Trace {
+    final String type;
+    final int length;               // 行数；前缀视图中小于列数组的长度
+
+    // --- 请求列（按原始数据集顺序）---
+    final int[] ids;
+    final int[] sizes;
+    final long[] arrivalTimes;
+    final long[] deadlines;
+    final int[] objectOf;           // 行 -> 对象编号
+
+    // --- 对象列（按 id 首次出现的顺序）---
+    final int objectCount;
+    final int[] objectIds;
+    final int[] objectSizes;        // 首次出现时的 size，与原先 RemoteCloud 中保留的那个 DataItem 一致
+    final long[] objectFirstArrivals;
+
+    private volatile EvaluationContext evaluationContext;
+    private final Map<Integer, Trace> prefixes = new ConcurrentHashMap<>();
+
+    public Trace(String type, int[] ids, int[] sizes, long[] arrivalTimes, long[] deadlines) {
+        int n = ids.length;
+        if (sizes.length != n || arrivalTimes.length != n || deadlines.length != n) {
+            throw new IllegalArgumentException("轨迹各列长度不一致");
+        }
+        this.type = type;
+        this.length = n;
+        this.ids = ids;
+        this.sizes = sizes;
+        this.arrivalTimes = arrivalTimes;
+        this.deadlines = deadlines;
+        this.objectOf = new int[n];
+
+        IdSlotMap idToObject = new IdSlotMap(n);
+        int[] firstRow = new int[n];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            int object = idToObject.get(ids[row]);
+            if (object == IdSlotMap.MISSING) {
+                object = count++;
+                idToObject.put(ids[row], object);
+                firstRow[object] = row;
+            }
+            objectOf[row] = object;
+        }
+        this.objectCount = count;
+        this.objectIds = new int[count];
+        this.objectSizes = new int[count];
+        this.objectFirstArrivals = new long[count];
+        for (int object = 0; object < count; object++) {
+            int row = firstRow[object];
+            objectIds[object] = ids[row];
+            objectSizes[object] = sizes[row];
+            objectFirstArrivals[object] = arrivalTimes[row];
+        }
+    }
+
+    // 前缀视图：与父轨迹共享所有数组
+    private Trace(Trace parent, int length) {
+        this.type = parent.type;
+        this.length = length;
+        this.ids = parent.ids;
+        this.sizes = parent.sizes;
+        this.arrivalTimes = parent.arrivalTimes;
+        this.deadlines = parent.deadlines;
+        this.objectOf = parent.objectOf;
+        int count = 0;
+        for (int row = 0; row < length; row++) count = Math.max(count, objectOf[row] + 1);
+        this.objectCount = count;
+        this.objectIds = parent.objectIds;
+        this.objectSizes = parent.objectSizes;
+        this.objectFirstArrivals = parent.objectFirstArrivals;
+    }
+
+    /**
+     * 前 n 行组成的零拷贝视图（n 超过行数时截断为整条轨迹），与原先 "只读取前 maxLines 行" 的语义一致。
+     * 同一个 n 的视图只创建一次，它的评估上下文因此也在所有实验之间共享。
+     */
+    public Trace prefix(int n) {
+        if (n >= length) return this;
+        if (n < 0) throw new IllegalArgumentException("前缀长度不能为负: " + n);
+        return prefixes.computeIfAbsent(n, k -> new Trace(this, k));
+    }
+
+    /**
+     * 从 DataItem 数组构建轨迹（DataGenerator 仍然产生 DataItem；CSV 由 CsvTraceLoader 直接解析为列）。
+     */
+    public static Trace of(DataItem[] items) {
+        int n = items.length;
+        int[] ids = new int[n];
+        int[] sizes = new int[n];
+        long[] arrivalTimes = new long[n];
+        long[] deadlines = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = items[i].id;
+            sizes[i] = items[i].size;
+            arrivalTimes[i] = items[i].arrivalTime;
+            deadlines[i] = items[i].deadline;
+        }
+        return new Trace(n == 0 ? "" : items[0].type, ids, sizes, arrivalTimes, deadlines);
+    }
+
+    public int length() { return length; }
+    public int objectCount() { return objectCount; }
+    public String getType() { return type; }
+
+    /**
+     * 本轨迹的评估上下文，第一次调用时构建，之后所有线程共享同一个实例。
+     */
+    public EvaluationContext evaluationContext() {
+        EvaluationContext context = evaluationContext;
+        if (context == null) {
+            synchronized (this) {
+                context = evaluationContext;
+                if (context == null) {
+                    context = new EvaluationContext(this);
+                    evaluationContext = context;
+                }
+            }
+        }
+        return context;
+    }
+}
@@ -0,0 +1,415 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 二进制列式轨迹文件 (.trc)，用于上千万行级别的轨迹：不需要逐字符解析，读取时直接内存映射后整列拷入 Trace 的数组。
+ *
+ * 文件布局（小端序）：
+ *   0   magic "TRCE"
+ *   4   int  版本号
+ *   8   int  标志位（FLAG_VARINT：四列均为变长编码）
+ *   12  int  类型字符串的字节数
+ *   16  long 行数
+ *   24  4 × (long 列起始偏移, long 列字节数)，依次为 id, size, arrivalTime, deadline
+ *   88  类型字符串 (UTF-8)，之后补齐到 8 字节对齐，紧接各列数据
+ *
+ * 定长编码：id/size 为 int32，arrivalTime/deadline 为 int64，每列按 8 字节对齐。
+ * 变长编码 (FLAG_VARINT)：全部为 zigzag varint，
+ *   id、size 直接编码；arrivalTime 编码与上一行的差值（第一行与 0 的差值）；deadline 编码与同一行 arrivalTime 的差值。
+ *   按到达时间排序的轨迹里这两个差值都很小，NASA 轨迹每行约 9~10 字节。
+ *
+ * 用法:
+ *   java TraceFile csv  <输入.csv> <输出.trc> [--varint]
+ *   java TraceFile zipf <请求数> <唯一ID数> <种子> <输出.trc> [--varint]
+ *   java TraceFile info <文件.trc>
+ */
+public final class TraceFile {
+    public static final String EXTENSION = ".trc";
+    public static final int FLAG_VARINT = 1;
+
+    private static final int MAGIC = 'T' | 'R' << 8 | 'C' << 16 | 'E' << 24;
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 88;
+    private static final int COLUMNS = 4;
+    // 单个映射窗口的上限，必须是 8 的倍数，定长列按窗口分段整块拷贝
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final Map<Path, Trace> loaded = new HashMap<>();
+
+    private TraceFile() {}
+
+    // ------------------------------------------------------------------ 写入
+
+    /**
+     * 把轨迹写成二进制文件。
+     * @param varint 是否使用 delta + varint 变长编码。
+     */
+    public static void write(Trace trace, Path file, boolean varint) throws IOException {
+        byte[] type = trace.type.getBytes(StandardCharsets.UTF_8);
+        long dataStart = align8(FIXED_HEADER_BYTES + type.length);
+        long[] offsets = new long[COLUMNS];
+        long[] lengths = new long[COLUMNS];
+        int n = trace.length();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel, dataStart);
+            for (int column = 0; column < COLUMNS; column++) {
+                out.padTo8();
+                offsets[column] = out.position();
+                for (int row = 0; row < n; row++) {
+                    if (varint) {
+                        out.putVarLong(zigzag(encodedValue(trace, column, row)));
+                    } else if (column < 2) {
+                        out.putInt(column == 0 ? trace.ids[row] : trace.sizes[row]);
+                    } else {
+                        out.putLong(column == 2 ? trace.arrivalTimes[row] : trace.deadlines[row]);
+                    }
+                }
+                lengths[column] = out.position() - offsets[column];
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(varint ? FLAG_VARINT : 0).putInt(type.length).putLong(n);
+            for (int column = 0; column < COLUMNS; column++) header.putLong(offsets[column]).putLong(lengths[column]);
+            header.put(type);
+            header.clear();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * CSV ("id","size","arrivalTime","deadline") → 二进制。CSV 通过 CsvTraceLoader 内存映射解析。
+     */
+    public static Trace convertCsv(String csvPath, String type, Path out, boolean varint) throws IOException {
+        Trace trace = CsvTraceLoader.load(csvPath, type);
+        write(trace, out, varint);
+        return trace;
+    }
+
+    /**
+     * DataGenerator 生成的合成轨迹 → 二进制，之后的实验可直接重放同一份数据而不必重新生成。
+     */
+    public static Trace convertGenerated(DataGenerator generator, Path out, boolean varint) throws IOException {
+        Trace trace = Trace.of(generator.generateData());
+        write(trace, out, varint);
+        return trace;
+    }
+
+    private static long encodedValue(Trace trace, int column, int row) {
+        switch (column) {
+            case 0: return trace.ids[row];
+            case 1: return trace.sizes[row];
+            case 2: return trace.arrivalTimes[row] - (row == 0 ? 0 : trace.arrivalTimes[row - 1]);
+            default: return trace.deadlines[row] - trace.arrivalTimes[row];
+        }
+    }
+
+    /**
+     * 顺序写入各列的小缓冲区，写满后整块落盘。
+     */
+    private static final class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long flushed;
+
+        ColumnWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.flushed = start;
+        }
+
+        long position() { return flushed + buffer.position(); }
+
+        void putInt(int v) throws IOException { ensure(4); buffer.putInt(v); }
+        void putLong(long v) throws IOException { ensure(8); buffer.putLong(v); }
+
+        void putVarLong(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buffer.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte) v);
+        }
+
+        void padTo8() throws IOException {
+            while ((position() & 7) != 0) { ensure(1); buffer.put((byte) 0); }
+        }
+
+        private void ensure(int bytes) throws IOException { if (buffer.remaining() < bytes) flush(); }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) flushed += channel.write(buffer, flushed);
+            buffer.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------ 读取
+
+    /**
+     * 与 CsvTraceLoader.load 相同：每个文件在整个 JVM 中只读取一次，之后直接返回同一个 Trace。
+     */
+    public static synchronized Trace load(String filePath) throws IOException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Trace trace = loaded.get(file);
+        if (trace == null) {
+            trace = read(file);
+            loaded.put(file, trace);
+        }
+        return trace;
+    }
+
+    /**
+     * 内存映射读取整条轨迹。定长列直接按窗口整块拷入数组，变长列逐个解码；全程不创建 DataItem。
+     */
+    public static Trace read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, file);
+            if (header.rows > Integer.MAX_VALUE - 8) throw new IOException("轨迹行数超出单个 Trace 的上限，请使用 stream 流式读取: " + header.rows);
+            int n = (int) header.rows;
+            int[] ids = new int[n];
+            int[] sizes = new int[n];
+            long[] arrivalTimes = new long[n];
+            long[] deadlines = new long[n];
+
+            if (header.varint) {
+                ColumnCursor cursor = new ColumnCursor(channel, header.offsets[0], header.lengths[0]);
+                for (int row = 0; row < n; row++) ids[row] = Math.toIntExact(cursor.nextVarint());
+                cursor = new ColumnCursor(channel, header.offsets[1], header.lengths[1]);
+                for (int row = 0; row < n; row++) sizes[row] = Math.toIntExact(cursor.nextVarint());
+                cursor = new ColumnCursor(channel, header.offsets[2], header.lengths[2]);
+                long previous = 0;
+                for (int row = 0; row < n; row++) previous = arrivalTimes[row] = previous + cursor.nextVarint();
+                cursor = new ColumnCursor(channel, header.offsets[3], header.lengths[3]);
+                for (int row = 0; row < n; row++) deadlines[row] = arrivalTimes[row] + cursor.nextVarint();
+            } else {
+                readInts(channel, header.offsets[0], ids);
+                readInts(channel, header.offsets[1], sizes);
+                readLongs(channel, header.offsets[2], arrivalTimes);
+                readLongs(channel, header.offsets[3], deadlines);
+            }
+            return new Trace(header.type, ids, sizes, arrivalTimes, deadlines);
+        }
+    }
+
+    private static final class Header {
+        int flags;
+        boolean varint;
+        long rows;
+        String type;
+        final long[] offsets = new long[COLUMNS];
+        final long[] lengths = new long[COLUMNS];
+    }
+
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < FIXED_HEADER_BYTES) throw new IOException("不是有效的轨迹文件（长度不足）: " + file);
+        ByteBuffer fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, FIXED_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (fixed.getInt() != MAGIC) throw new IOException("不是有效的轨迹文件（magic 不匹配）: " + file);
+        int version = fixed.getInt();
+        if (version != VERSION) throw new IOException("不支持的轨迹文件版本 " + version + ": " + file);
+
+        Header header = new Header();
+        header.flags = fixed.getInt();
+        header.varint = (header.flags & FLAG_VARINT) != 0;
+        int typeLength = fixed.getInt();
+        long rows = fixed.getLong();
+        if (rows < 0) throw new IOException("轨迹行数非法: " + rows);
+        header.rows = rows;
+        for (int column = 0; column < COLUMNS; column++) {
+            header.offsets[column] = fixed.getLong();
+            header.lengths[column] = fixed.getLong();
+            long expected = header.varint ? -1 : rows * (column < 2 ? 4 : 8);
+            if (header.offsets[column] < 0 || header.offsets[column] + header.lengths[column] > fileSize
+                    || (expected >= 0 && header.lengths[column] != expected)) {
+                throw new IOException("轨迹文件第 " + column + " 列越界或长度不符: " + file);
+            }
+        }
+        byte[] type = new byte[typeLength];
+        channel.map(FileChannel.MapMode.READ_ONLY, FIXED_HEADER_BYTES, typeLength).get(type);
+        header.type = new String(type, StandardCharsets.UTF_8);
+        return header;
+    }
+
+    private static void readInts(FileChannel channel, long offset, int[] target) throws IOException {
+        int done = 0;
+        while (done < target.length) {
+            int count = (int) Math.min(target.length - done, WINDOW_BYTES / 4);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * done, 4L * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(target, done, count);
+            done += count;
+        }
+    }
+
+    private static void readLongs(FileChannel channel, long offset, long[] target) throws IOException {
+        int done = 0;
+        while (done < target.length) {
+            int count = (int) Math.min(target.length - done, WINDOW_BYTES / 8);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset + 8L * done, 8L * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(target, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * 顺序读取一列（定长 int32/int64 或 zigzag varint），列超过一个映射窗口时自动从当前位置映射下一段。
+     */
+    private static final class ColumnCursor {
+        private final FileChannel channel;
+        private final long end;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        ColumnCursor(FileChannel channel, long offset, long length) throws IOException {
+            this.channel = channel;
+            this.end = offset + length;
+            map(offset);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, end - start));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes) return;
+            long position = windowStart + window.position();
+            if (position + bytes > end) throw new IOException("轨迹列提前结束");
+            map(position);
+        }
+
+        int nextInt() throws IOException { ensure(4); return window.getInt(); }
+        long nextLong() throws IOException { ensure(8); return window.getLong(); }
+
+        long nextVarint() throws IOException {
+            long raw = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                ensure(1);
+                byte b = window.get();
+                raw |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return (raw >>> 1) ^ -(raw & 1);
+            }
+            throw new IOException("变长编码超过 64 位");
+        }
+    }
+
+    /**
+     * 逐行读取轨迹文件的 ArrivalStream，供流式评估使用：四列各用一个游标顺序推进，
+     * 只映射当前窗口，不分配与行数成正比的数组，因此可以重放任意长度的轨迹。文件中的行必须按到达时间排序。
+     */
+    public static final class Stream implements ArrivalStream, AutoCloseable {
+        private final FileChannel channel;
+        private final Header header;
+        private final ColumnCursor ids, sizes, arrivals, deadlines;
+        private long remaining;
+        private int id, size;
+        private long arrivalTime, deadline;
+
+        private Stream(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                header = readHeader(channel, file);
+                ids = new ColumnCursor(channel, header.offsets[0], header.lengths[0]);
+                sizes = new ColumnCursor(channel, header.offsets[1], header.lengths[1]);
+                arrivals = new ColumnCursor(channel, header.offsets[2], header.lengths[2]);
+                deadlines = new ColumnCursor(channel, header.offsets[3], header.lengths[3]);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            remaining = header.rows;
+        }
+
+        public String getType() { return header.type; }
+        public long rows() { return header.rows; }
+
+        public boolean next() {
+            if (remaining == 0) return false;
+            remaining--;
+            try {
+                if (header.varint) {
+                    id = Math.toIntExact(ids.nextVarint());
+                    size = Math.toIntExact(sizes.nextVarint());
+                    arrivalTime += arrivals.nextVarint();
+                    deadline = arrivalTime + deadlines.nextVarint();
+                } else {
+                    id = ids.nextInt();
+                    size = sizes.nextInt();
+                    arrivalTime = arrivals.nextLong();
+                    deadline = deadlines.nextLong();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        public int id() { return id; }
+        public int size() { return size; }
+        public long arrivalTime() { return arrivalTime; }
+        public long deadline() { return deadline; }
+
+        @Override
+        public void close() throws IOException { channel.close(); }
+    }
+
+    /**
+     * 打开轨迹文件的流式读取器，调用方负责关闭。
+     */
+    public static Stream stream(Path file) throws IOException { return new Stream(file); }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+    private static long align8(long v) { return (v + 7) & ~7L; }
+
+    // ------------------------------------------------------------------ 命令行
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法: java TraceFile csv <输入.csv> <输出.trc> [--varint]");
+            System.out.println("      java TraceFile zipf <请求数> <唯一ID数> <种子> <输出.trc> [--varint]");
+            System.out.println("      java TraceFile info <文件.trc>");
+            return;
+        }
+        boolean varint = args[args.length - 1].equals("--varint");
+        long t0 = System.nanoTime();
+        switch (args[0]) {
+            case "csv": {
+                Trace trace = convertCsv(args[1], "nasa_request", Paths.get(args[2]), varint);
+                System.out.printf("已写入 %s: %d 行, %d 个对象, %.1f ms\n", args[2], trace.length(), trace.objectCount(), (System.nanoTime() - t0) / 1e6);
+                break;
+            }
+            case "zipf": {
+                DataGenerator generator = new DataGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]));
+                Trace trace = convertGenerated(generator, Paths.get(args[4]), varint);
+                System.out.printf("已写入 %s: %d 行, %d 个对象, %.1f ms\n", args[4], trace.length(), trace.objectCount(), (System.nanoTime() - t0) / 1e6);
+                break;
+            }
+            case "info": {
+                Path file = Paths.get(args[1]);
+                Header header;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    header = readHeader(channel, file);
+                }
+                Trace trace = read(file);
+                System.out.printf("%s: 类型 %s, %d 行, %d 个对象, 编码 %s, 读取 %.1f ms\n", file, header.type, header.rows,
+                        trace.objectCount(), header.varint ? "delta+varint" : "定长", (System.nanoTime() - t0) / 1e6);
+                break;
+            }
+            default:
+                System.out.println("未知命令: " + args[0]);
+        }
+    }
+}
@@ -3,24 +3,29 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class UpdateSA {
-    private static class EliteSolution implements Comparable<EliteSolution> {
-        final double[] solution;
-        final double score;
-
-        EliteSolution(double[] solution, double score) {
-            this.solution = solution;
-            this.score = score;
-        }
-
-        @Override
-        public int compareTo(EliteSolution other) {
-            return Double.compare(other.score, this.score);
-        }
-    }
-
-    private static final int DIMENSIONS = 5;
+/**
+ * 带 GA 救援的模拟退火：先随机预填精英档案，然后退火；连续若干个温度没有改进时用档案做几代 GA，再从档案前几名升温重启。
+ *
+ * 并行回火 (parallel tempering)：-Dusa.chains=N (N > 1) 时同时运行 N 条链，温度依次为 T, T·r, T·r², ... (r = -Dusa.ladder)，
+ * T 按原来的退火表降温。每条链有自己的线程、随机数和 DataManager (DataManager.fork)，在本线程上逐个评估自己的邻居，
+ * 与单链一样以本链的当前解为参照、按本链的接受阈值提前终止（多保真评估开启时每条链各自筛选，不同链的邻居之间不互相排名）。
+ * 新的最佳解由各链线程直接放入共用的精英档案 (EliteArchive)。每隔 -Dusa.swapInterval 步所有链在屏障处会合，
+ * 相邻两条链按 Metropolis 准则交换当前解，冷链因此能接手热链跳出局部最优后找到的解；
+ * 停滞判定、降温、GA 救援和重启也在屏障处针对整组链进行，GA 救援每一代的子代按下标轮流分给各链线程评估。
+ * 每一段由最慢的链决定会合时间；档案的写入顺序取决于线程调度，多链的结果不能逐位复现。
+ * N = 1 (默认) 时由调度器按 ask/tell 驱动，与单链版本完全相同；-Dusa.chains=0 表示每个 CPU 核一条链。
+ */
+public class UpdateSA extends AbstractOptimizer implements AsynchronousOptimizer {
     private static final double INIT_TEMP = 500.0;
     private static final double MIN_TEMP = 1e-3;
     private static final double COOLING_RATE = 0.9;
@@ -33,114 +38,387 @@ public class UpdateSA {
     private static final int GA_RESCUE_GENERATIONS = 10;
     private static final double GA_RESCUE_MUTATION_RATE = 0.2;
     private static final int GA_RESCUE_TOURNAMENT_SIZE = 3;
+    private static final int CHAINS = Integer.getInteger("usa.chains", 1);
+    private static final double LADDER = Math.max(1.0, Double.parseDouble(System.getProperty("usa.ladder", "2.0")));
+    private static final int SWAP_INTERVAL = Math.max(1, Integer.getInteger("usa.swapInterval", 10));
+
+    // 运行阶段：先预填精英档案，然后退火；停滞时插入若干代 GA 救援，结束后回到退火。DONE 只用于并行回火
+    private enum Phase { PRESEED, ANNEAL, RESCUE, DONE }
 
-    private final DataItem[] testData;
-    private final DataManager baseDM;
-    private final Random random;
-    private final List<EliteSolution> eliteArchive;
+    /**
+     * 一条退火链：当前解，以及本步邻居的接受判定随机数和阈值。
+     * 单链时使用优化器的随机数和 baseDM；并行回火时每条链有自己的随机数和 DataManager，只在自己的线程上使用。
+     */
+    private final class Chain {
+        final int index;
+        final Random random;
+        final DataManager dm;
+        double[] currentSolution;
+        double currentScore;
+        double u, threshold;
+
+        Chain(int index, Random random, DataManager dm) {
+            this.index = index;
+            this.random = random;
+            this.dm = dm;
+        }
+
+        /**
+         * 产生一个邻居，并先抽取接受判定用的随机数：exp((s - current) / T) > u 等价于 s > current + T * ln(u)，
+         * 得分达不到这个阈值的邻居一定被拒绝（也不可能成为最佳解），评估器可以提前停止它的评估。
+         */
+        double[] propose() {
+            double t = chainTemperature(index);
+            double[] neighbor = generateNeighborSA_Stateless(currentSolution, t, random);
+            u = random.nextDouble();
+            threshold = currentScore + t * Math.log(u);
+            return neighbor;
+        }
+
+        void accept(double[] neighbor, ParallelEvaluator.Result result) {
+            if (result.isExact() && acceptanceProbability(currentScore, result.score, chainTemperature(index)) > u) {
+                currentSolution = neighbor;
+                currentScore = result.score;
+            }
+        }
+
+        /** 并行回火：在本链的评估器上走一步。 */
+        void step(CandidateEvaluator evaluator) {
+            double[] neighbor = propose();
+            ParallelEvaluator.Result result = evaluator.evaluate(neighbor, currentSolution, currentScore, threshold);
+            evaluations.incrementAndGet();
+            record(neighbor, result);
+            accept(neighbor, result);
+        }
+    }
+
+    private final Chain[] chains;   // 下标 0 为最冷的链，温度为 temperature
+    private final EliteArchive eliteArchive;
     private int restartCount;
-    private double[] bestSolution;
-    private double bestScore;
-
-    public UpdateSA(DataItem[] testData, DataManager baseDM, long seed) {
-        this.testData = testData;
-        this.baseDM = baseDM;
-        this.random = new Random(seed);
-        this.eliteArchive = new ArrayList<>();
+    private Phase phase = Phase.PRESEED;
+    // 正在评估的候选解：单链退火时的邻居，或 GA 救援本代的子代
+    private double[][] candidates;
+
+    // --- 退火状态 ---
+    private double temperature = INIT_TEMP;
+    private int stagnationCount = 0;
+    private int generation = 0;
+    private int iteration = 0;
+    private double bestScoreAtTempStart;
+    private long swapAttempts = 0, swapAccepts = 0;
+
+    // --- GA 救援状态：本代的子代 candidates 中已评估到第 rescueNext 个 ---
+    private List<EliteArchive.EliteSolution> currentPopulation;
+    private List<EliteArchive.EliteSolution> newPopulation;
+    private ParallelEvaluator.Result[] rescueResults;
+    private int rescueGeneration;
+    private int rescueNext;
+
+    // --- 并行回火：以下字段由链线程更新；其余状态只在屏障动作中修改，链线程在两次屏障之间只读取 ---
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicBoolean exhausted = new AtomicBoolean(false);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private long startNanos, evaluationsToBest = 0, nanosToBest = 0;   // 在 synchronized (this) 中更新
+    private int segment;                                               // 本段每条链走的步数
+
+    public UpdateSA(Trace testData, DataManager baseDM, long seed) {
+        this(testData, baseDM, seed, CHAINS > 0 ? CHAINS : Runtime.getRuntime().availableProcessors());
+    }
+
+    public UpdateSA(Trace testData, DataManager baseDM, long seed, int chains) {
+        super(testData, baseDM, seed);
+        this.chains = new Chain[Math.max(1, chains)];
+        for (int k = 0; k < this.chains.length; k++) {
+            this.chains[k] = this.chains.length == 1 ? new Chain(k, random, baseDM) : new Chain(k, new Random(random.nextLong()), baseDM.fork());
+        }
+        this.eliteArchive = new EliteArchive(ARCHIVE_SIZE, DIVERSITY_THRESHOLD);
         this.restartCount = 0;
-        this.bestSolution = new double[DIMENSIONS];
-        this.bestScore = -Double.MAX_VALUE;
     }
 
-    private double evaluate(double[] weights) {
-        baseDM.resetCurrentRunStats();
-        double score = DataTest.score(weights, testData, baseDM);
-        if (score > this.bestScore) {
-            this.bestScore = score;
-            this.bestSolution = weights.clone();
-            updateArchive(new EliteSolution(this.bestSolution.clone(), this.bestScore));
-            baseDM.saveBestStats();
+    @Override
+    public String name() { return "SA with GA-Rescue"; }
+
+    @Override
+    public void begin(PrintStream out, double baselineScore) {
+        super.begin(out, baselineScore);
+        startNanos = System.nanoTime();
+        log("--- Pre-seeding Elite Archive to ensure GA-Rescue readiness... ---");
+    }
+
+    @Override
+    public boolean isAsynchronous() { return chains.length > 1; }
+
+    @Override
+    public Request ask() {
+        if (phase == Phase.PRESEED) {
+            if (eliteArchive.size() <= ARCHIVE_SIZE / 3) {
+                candidates = new double[][]{randomWeights()};
+                return Request.single(candidates[0]);
+            }
+            finishPreseeding();
         }
-        return score;
+
+        if (phase == Phase.RESCUE) {
+            if (newPopulation == null) startRescueGeneration();
+            return Request.single(candidates[rescueNext]);
+        }
+
+        if (iteration == 0 && !beginTemperature()) return null;
+        Chain chain = chains[0];
+        candidates = new double[][]{chain.propose()};
+        return Request.single(candidates[0], chain.currentSolution, chain.currentScore, chain.threshold);
     }
 
-    public double run(PrintStream out, double baselineScore) {
-        out.println("--- Pre-seeding Elite Archive to ensure GA-Rescue readiness... ---");
-        while (eliteArchive.size() <= ARCHIVE_SIZE / 3) {
-            evaluate(randomWeights());
+    @Override
+    public void tell(ParallelEvaluator.Result[] results) {
+        if (phase == Phase.PRESEED) {
+            record(candidates[0], results[0]);
+            return;
         }
-        out.println("--- Pre-seeding finished. Elite archive size: " + eliteArchive.size() + " ---");
 
-        double[] currentSolution;
-        double currentScore;
-        if (!eliteArchive.isEmpty()) {
-            eliteArchive.sort(null);
-            currentSolution = eliteArchive.get(0).solution.clone();
-            currentScore = eliteArchive.get(0).score;
-        } else {
-            currentSolution = randomWeights();
-            currentScore = evaluate(currentSolution);
+        if (phase == Phase.RESCUE) {
+            rescueResults[rescueNext] = results[0];
+            record(candidates[rescueNext], results[0]);
+            if (++rescueNext == candidates.length) finishRescueGeneration();
+            return;
         }
 
-        double temperature = INIT_TEMP;
-        int stagnationCount = 0;
-        int generation = 0;
+        record(candidates[0], results[0]);
+        chains[0].accept(candidates[0], results[0]);
+        if (++iteration == ITERATIONS_PER_TEMP) finishTemperature();
+    }
+
+    /**
+     * 并行回火：先在调用线程上预填精英档案，然后每条链一个线程，循环"走 segment 步 (或评估分到的救援子代)、在屏障处等待"，
+     * 直到退火结束、预算用尽或出错。屏障动作 (synchronize) 由最后到达的链线程执行，此时其他链线程都在等待。
+     */
+    @Override
+    public String drive(OptimizerScheduler.Budget budget, long deadline) {
+        CandidateEvaluator[] evaluators = new CandidateEvaluator[chains.length];
+        for (int k = 0; k < chains.length; k++) {
+            evaluators[k] = CandidateEvaluator.create(testData, chains[k].dm);
+        }
+        while (eliteArchive.size() <= ARCHIVE_SIZE / 3 && !stopped(budget, deadline)) {
+            double[] weights = randomWeights();
+            ParallelEvaluator.Result result = evaluators[0].evaluate(weights);
+            evaluations.incrementAndGet();
+            record(weights, result);
+        }
+        if (!exhausted.get()) {
+            finishPreseeding();
+            if (beginTemperature()) {
+                segment = Math.min(SWAP_INTERVAL, ITERATIONS_PER_TEMP);
+                runChains(evaluators, budget, deadline);
+            }
+        }
+        if (failure.get() != null) throw new IllegalStateException("并行回火运行失败", failure.get());
 
-        while (temperature > MIN_TEMP) {
-            generation++;
-            double bestScoreAtTempStart = this.bestScore;
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder summary = new StringBuilder(String.format(
+                "评估预算 (并行回火, %d 条链各一个线程): 提交 %d 个候选解, 吞吐量 %.1f 个候选解/秒, 最佳解在第 %d 个候选解时找到 (%.1f 秒)",
+                chains.length, evaluations.get(), evaluations.get() / Math.max(seconds, 1e-9), evaluationsToBest, nanosToBest / 1e9));
+        for (int k = 0; k < chains.length; k++) {
+            summary.append(String.format("\n  链 %d: %s", k, evaluators[k].budgetSummary()));
+        }
+        return summary.toString();
+    }
 
-            for (int it = 0; it < ITERATIONS_PER_TEMP; it++) {
-                double[] neighborSolution = generateNeighborSA_Stateless(currentSolution, temperature);
-                double neighborScore = evaluate(neighborSolution);
+    private void runChains(CandidateEvaluator[] evaluators, OptimizerScheduler.Budget budget, long deadline) {
+        CyclicBarrier barrier = new CyclicBarrier(chains.length, this::synchronize);
+        ExecutorService threads = Executors.newFixedThreadPool(chains.length);
+        List<Future<?>> futures = new ArrayList<>(chains.length);
+        try {
+            for (int k = 0; k < chains.length; k++) {
+                final Chain chain = chains[k];
+                final CandidateEvaluator evaluator = evaluators[k];
+                futures.add(threads.submit(() -> {
+                    runChain(chain, evaluator, barrier, budget, deadline);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并行回火被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("并行回火运行失败", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
 
-                if (acceptanceProbability(currentScore, neighborScore, temperature) > random.nextDouble()) {
-                    currentSolution = neighborSolution;
-                    currentScore = neighborScore;
+    /**
+     * 一条链的线程。评估中的异常记入 failure 后照常到达屏障，由屏障动作结束所有链，其他链不会永远等待。
+     */
+    private void runChain(Chain chain, CandidateEvaluator evaluator, CyclicBarrier barrier,
+                          OptimizerScheduler.Budget budget, long deadline) throws InterruptedException, BrokenBarrierException {
+        while (phase != Phase.DONE) {
+            try {
+                if (phase == Phase.RESCUE) {
+                    for (int i = chain.index; i < candidates.length && !stopped(budget, deadline); i += chains.length) {
+                        rescueResults[i] = evaluator.evaluate(candidates[i]);
+                        evaluations.incrementAndGet();
+                        record(candidates[i], rescueResults[i]);
+                    }
+                } else {
+                    for (int s = 0; s < segment && !stopped(budget, deadline); s++) {
+                        chain.step(evaluator);
+                    }
                 }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
             }
+            barrier.await();
+        }
+    }
 
-            if (this.bestScore > bestScoreAtTempStart) {
-                stagnationCount = 0;
+    /**
+     * 屏障动作：交换相邻链的当前解 (或收集本代救援子代的结果)，温度段结束时做停滞判定、降温或开始 GA 救援，再决定下一段做什么。
+     */
+    private void synchronize() {
+        try {
+            if (exhausted.get() || failure.get() != null) {
+                phase = Phase.DONE;
+                return;
+            }
+            if (phase == Phase.RESCUE) {
+                finishRescueGeneration();
             } else {
-                stagnationCount++;
+                iteration += segment;
+                swapChains();
+                if (iteration == ITERATIONS_PER_TEMP) finishTemperature();
             }
-
-            double improvement = this.bestScore - baselineScore;
-            out.printf("Gen %2d (Temp %.2e): Improvement = %.4f\n",
-                    generation, temperature, Math.max(0, improvement));
-
-            if (eliteArchive.size() >= ARCHIVE_SIZE / 3 && stagnationCount >= RESTART_STAGNATION_THRESHOLD && restartCount < MAX_RESTART_COUNT) {
-                out.printf("--- Stagnation detected. Triggering GA Rescue #%d ---\n", restartCount + 1);
-                restartCount++;
-                runGARescue();
-                int newStartIndex = random.nextInt(Math.min(5, eliteArchive.size()));
-                currentSolution = eliteArchive.get(newStartIndex).solution.clone();
-                currentScore = eliteArchive.get(newStartIndex).score;
-                temperature *= RESTART_TEMP_INCREASE_FACTOR;
-                if (temperature > INIT_TEMP) {
-                    temperature = INIT_TEMP;
-                }
-                stagnationCount = 0;
-                continue;
+            if (phase == Phase.RESCUE) {
+                startRescueGeneration();
+            } else if (iteration == 0 && !beginTemperature()) {
+                phase = Phase.DONE;
             }
-            temperature *= COOLING_RATE;
+            segment = Math.min(SWAP_INTERVAL, ITERATIONS_PER_TEMP - iteration);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            phase = Phase.DONE;
         }
+    }
 
-        out.println("\n=== SA with GA-Rescue Finished ===");
-        double[] finalNormalizedBest = this.bestSolution.clone();
-        baseDM.normalizeL2(finalNormalizedBest);
-        out.printf("Final Best Weights (Normalized) = %s\n", Arrays.toString(finalNormalizedBest));
-        baseDM.printStats(out);
-        return this.bestScore;
+    /** 并行回火的预算检查：预算用尽或已出错时返回 true，预算用尽只记录一次日志。 */
+    private boolean stopped(OptimizerScheduler.Budget budget, long deadline) {
+        if (exhausted.get() || failure.get() != null) return true;
+        if (!budget.exhausted(evaluations.get(), deadline)) return false;
+        if (exhausted.compareAndSet(false, true)) {
+            synchronized (this) { log(String.format("--- 评估预算用尽 (已评估 %d 个候选解), 提前结束 ---", evaluations.get())); }
+        }
+        return true;
     }
 
-    private double[] randomWeights() {
-        double[] w = new double[DIMENSIONS];
-        for (int i = 0; i < DIMENSIONS; i++) {
-            w[i] = random.nextDouble();
+    /**
+     * 登记一个评估结果：被提前终止或只有估计值的结果 isExact() 为 false，不会被记为最佳解；新的最佳解同时放入精英档案。
+     * 并行回火时由各链线程并发调用。
+     */
+    private synchronized void record(double[] solution, ParallelEvaluator.Result result) {
+        if (offer(solution, result)) {
+            eliteArchive.offer(new EliteArchive.EliteSolution(solution.clone(), result.score));
+            evaluationsToBest = evaluations.get();
+            nanosToBest = System.nanoTime() - startNanos;
+        }
+    }
+
+    /** 预填结束：各链从档案中不同的好解出发。 */
+    private void finishPreseeding() {
+        log("--- Pre-seeding finished. Elite archive size: " + eliteArchive.size() + " ---");
+        List<EliteArchive.EliteSolution> ranked = eliteArchive.ranked();
+        for (Chain chain : chains) {
+            EliteArchive.EliteSolution start = ranked.get(chain.index % ranked.size());
+            chain.currentSolution = start.solution.clone();
+            chain.currentScore = start.score;
+        }
+        phase = Phase.ANNEAL;
+    }
+
+    /** 开始一个温度段，温度已降到下限时返回 false。 */
+    private boolean beginTemperature() {
+        if (temperature <= MIN_TEMP) return false;
+        generation++;
+        bestScoreAtTempStart = getBestScore();
+        return true;
+    }
+
+    /** 一个温度段结束：判定停滞，停滞足够久时开始 GA 救援，否则降温。 */
+    private void finishTemperature() {
+        iteration = 0;
+        if (getBestScore() > bestScoreAtTempStart) {
+            stagnationCount = 0;
+        } else {
+            stagnationCount++;
+        }
+        progress(String.format("Gen %2d (Temp %.2e)", generation, temperature));
+
+        if (eliteArchive.size() >= ARCHIVE_SIZE / 3 && stagnationCount >= RESTART_STAGNATION_THRESHOLD && restartCount < MAX_RESTART_COUNT) {
+            log(String.format("--- Stagnation detected. Triggering GA Rescue #%d ---", restartCount + 1));
+            restartCount++;
+            currentPopulation = eliteArchive.snapshot();
+            newPopulation = null;
+            rescueGeneration = 0;
+            phase = Phase.RESCUE;
+            return;
+        }
+        temperature *= COOLING_RATE;
+    }
+
+    /** 产生 GA 救援本代的子代：上一代最好的个体直接进入新种群，其余位置由子代填满。 */
+    private void startRescueGeneration() {
+        newPopulation = new ArrayList<>();
+        if (!currentPopulation.isEmpty()) {
+            currentPopulation.sort(null);
+            newPopulation.add(currentPopulation.get(0));
+        }
+        // 子代只依赖上一代，本代的子代一次产生（随机数的消耗顺序与逐个产生相同）
+        candidates = new double[ARCHIVE_SIZE - newPopulation.size()][];
+        for (int i = 0; i < candidates.length; i++) {
+            EliteArchive.EliteSolution p1 = tournamentSelection(currentPopulation);
+            EliteArchive.EliteSolution p2 = tournamentSelection(currentPopulation);
+            candidates[i] = crossover(p1.solution, p2.solution);
+            mutate(candidates[i]);
+        }
+        rescueResults = new ParallelEvaluator.Result[candidates.length];
+        rescueNext = 0;
+    }
+
+    /** 本代的子代都已评估：并入新种群，最后一代结束后重启退火。 */
+    private void finishRescueGeneration() {
+        for (int i = 0; i < candidates.length; i++) {
+            newPopulation.add(new EliteArchive.EliteSolution(candidates[i], rescueResults[i].score));
+        }
+        currentPopulation = newPopulation;
+        newPopulation = null;
+        if (++rescueGeneration == GA_RESCUE_GENERATIONS) finishGARescue();
+    }
+
+    private double chainTemperature(int k) { return temperature * Math.pow(LADDER, k); }
+
+    /**
+     * 相邻两条链 (温度 T_k < T_k+1) 以概率 min(1, exp((s_k+1 - s_k) * (1/T_k - 1/T_k+1))) 交换当前解：热链的解更好时总是交换。
+     */
+    private void swapChains() {
+        for (int k = 0; k + 1 < chains.length; k++) {
+            Chain cold = chains[k], hot = chains[k + 1];
+            double delta = (hot.currentScore - cold.currentScore) * (1 / chainTemperature(k) - 1 / chainTemperature(k + 1));
+            swapAttempts++;
+            if (delta >= 0 || random.nextDouble() < Math.exp(delta)) {
+                swapAccepts++;
+                double[] solution = cold.currentSolution; cold.currentSolution = hot.currentSolution; hot.currentSolution = solution;
+                double score = cold.currentScore; cold.currentScore = hot.currentScore; hot.currentScore = score;
+            }
+        }
+    }
+
+    @Override
+    protected void printSummary(PrintStream out) {
+        if (chains.length > 1) {
+            out.printf("并行回火: %d 条链 (各一个线程), 相邻温度比 %.2f, 每 %d 步在屏障处交换一次, 交换接受 %d / %d\n",
+                    chains.length, LADDER, SWAP_INTERVAL, swapAccepts, swapAttempts);
         }
-        return w;
     }
 
     private double acceptanceProbability(double currentScore, double neighborScore, double temperature) {
@@ -150,36 +428,32 @@ public class UpdateSA {
         return Math.exp((neighborScore - currentScore) / temperature);
     }
 
-    private void runGARescue() {
-        List<EliteSolution> currentPopulation = new ArrayList<>(eliteArchive);
-        for (int gen = 0; gen < GA_RESCUE_GENERATIONS; gen++) {
-            List<EliteSolution> newPopulation = new ArrayList<>();
-            if (!currentPopulation.isEmpty()) {
-                currentPopulation.sort(null);
-                newPopulation.add(currentPopulation.get(0));
-            }
-            while (newPopulation.size() < ARCHIVE_SIZE) {
-                EliteSolution p1 = tournamentSelection(currentPopulation);
-                EliteSolution p2 = tournamentSelection(currentPopulation);
-                double[] child = crossover(p1.solution, p2.solution);
-                mutate(child);
-                newPopulation.add(new EliteSolution(child, evaluate(child)));
-            }
-            currentPopulation = newPopulation;
+    /**
+     * GA 救援的最后一代评估完后：档案只保留前几名，再并入救援种群，然后各链从档案前 5 名中随机选一个升温重新退火。
+     */
+    private void finishGARescue() {
+        eliteArchive.retainTop(ARCHIVE_SIZE / 3);
+        for (EliteArchive.EliteSolution solution : currentPopulation) {
+            eliteArchive.offer(solution);
         }
-        eliteArchive.sort(null);
-        while (eliteArchive.size() > ARCHIVE_SIZE / 3) {
-            eliteArchive.remove(eliteArchive.size() - 1);
+        List<EliteArchive.EliteSolution> elites = eliteArchive.snapshot();
+        for (Chain chain : chains) {
+            int newStartIndex = random.nextInt(Math.min(5, elites.size()));
+            chain.currentSolution = elites.get(newStartIndex).solution.clone();
+            chain.currentScore = elites.get(newStartIndex).score;
         }
-        for (EliteSolution solution : currentPopulation) {
-            updateArchive(solution);
+        temperature *= RESTART_TEMP_INCREASE_FACTOR;
+        if (temperature > INIT_TEMP) {
+            temperature = INIT_TEMP;
         }
+        stagnationCount = 0;
+        phase = Phase.ANNEAL;
     }
 
-    private EliteSolution tournamentSelection(List<EliteSolution> population) {
-        EliteSolution best = null;
+    private EliteArchive.EliteSolution tournamentSelection(List<EliteArchive.EliteSolution> population) {
+        EliteArchive.EliteSolution best = null;
         for (int i = 0; i < GA_RESCUE_TOURNAMENT_SIZE; i++) {
-            EliteSolution ind = population.get(random.nextInt(population.size()));
+            EliteArchive.EliteSolution ind = population.get(random.nextInt(population.size()));
             if (best == null || ind.score > best.score) {
                 best = ind;
             }
@@ -204,37 +478,10 @@ public class UpdateSA {
         }
     }
 
-    private void updateArchive(EliteSolution newSolution) {
-        for (int i = 0; i < eliteArchive.size(); i++) {
-            if (distance(newSolution.solution, eliteArchive.get(i).solution) < DIVERSITY_THRESHOLD) {
-                if (newSolution.score > eliteArchive.get(i).score) {
-                    eliteArchive.set(i, newSolution);
-                }
-                return;
-            }
-        }
-        if (eliteArchive.size() < ARCHIVE_SIZE) {
-            eliteArchive.add(newSolution);
-        } else {
-            eliteArchive.sort(null);
-            if (newSolution.score > eliteArchive.get(eliteArchive.size() - 1).score) {
-                eliteArchive.set(eliteArchive.size() - 1, newSolution);
-            }
-        }
-    }
-
-    private double distance(double[] s1, double[] s2) {
-        double sum = 0;
-        for (int i = 0; i < DIMENSIONS; i++) {
-            sum += (s1[i] - s2[i]) * (s1[i] - s2[i]);
-        }
-        return Math.sqrt(sum);
-    }
-
-    private double[] generateNeighborSA_Stateless(double[] current, double temperature) {
+    private static double[] generateNeighborSA_Stateless(double[] current, double temperature, Random random) {
         double[] neighbor = current.clone();
         int k = 1 + (int) Math.round((DIMENSIONS - 1) * Math.min(1.0, temperature / INIT_TEMP));
-        int[] indices = randomSampleIndices(k);
+        int[] indices = randomSampleIndices(k, random);
         double step = 0.02 + (0.4 - 0.02) * Math.min(1.0, temperature / INIT_TEMP);
         for (int idx : indices) {
             neighbor[idx] += random.nextGaussian() * step;
@@ -243,7 +490,7 @@ public class UpdateSA {
         return neighbor;
     }
 
-    private int[] randomSampleIndices(int k) {
+    private static int[] randomSampleIndices(int k, Random random) {
         int[] all = new int[DIMENSIONS];
         for (int i = 0; i < DIMENSIONS; i++) {
             all[i] = i;
@@ -256,4 +503,4 @@ public class UpdateSA {
         }
         return Arrays.copyOf(all, k);
     }
-}
\ No newline at end of file
+}